@@ -1,39 +1,97 @@
 package ascii_art;
 
+import image.BlockBrightnessCache;
 import image.Image;
-import image.SubImage;
+import image.LuminancePyramid;
+import image_char_matching.CharsetSnapshot;
+import image_char_matching.EdgeCharMatcher;
 import image_char_matching.SubImgCharMatcher;
-import java.awt.*;
+import tile_sharding.ShardCoordinator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The AsciiArtAlgorithm class is responsible for generating ASCII art representation from a given image.
  * It processes the image by dividing it into smaller sub-images,
  * calculates the brightness for each sub-image,
  * and then maps the brightness to corresponding characters to create an ASCII art representation.
+ * The brightness values can optionally be spread over the whole range by a {@link ContrastEnhancer}
+ * before the mapping, and the mapping can optionally diffuse the quantization error with an
+ * {@link ErrorDiffusionDitherer}.
+ * A render reports its progress to a {@link RenderMonitor} and stops early if the monitor is cancelled.
  */
 public class AsciiArtAlgorithm {
 
-    private static Image lastImage;
-    private static int lastResolution;
-    private static SubImgCharMatcher lastSubImageCharMatcher;
-    private static SubImage[][] lastSubImageArray;
+    private static final Map<List<Object>, double[][]> BRIGHTNESS_GRIDS = new ConcurrentHashMap<>();
+    private static final Map<List<Object>, char[][]> EDGE_CHARS = new ConcurrentHashMap<>();
 
-    private final SubImgCharMatcher subImageCharMatcher;
-    private Image image;
+    private final CharsetSnapshot charsetSnapshot;
+    private final Image image;
     private final int resolution;
+    private String ditherType;
+    private ContrastEnhancer contrastEnhancer;
+    private boolean edgeMode;
+    private RenderMonitor renderMonitor;
 
     /**
      * Constructor for creating an AsciiArtAlgorithm object.
      *
      * @param subImageCharMatcher the character matcher responsible for converting
-     *                           brightness values to ASCII characters.
+     *                           brightness values to ASCII characters. Its current snapshot is
+     *                           used for the whole lifetime of this object.
      * @param image               the input image to be converted to ASCII art.
      * @param resolution          the resolution to divide the image into sub-images.
      */
     public AsciiArtAlgorithm(SubImgCharMatcher subImageCharMatcher, Image image, int resolution) {
-        this.subImageCharMatcher = subImageCharMatcher;
+        this.charsetSnapshot = subImageCharMatcher.getSnapshot();
         this.image = image;
         this.resolution = resolution;
+        this.ditherType = ErrorDiffusionDitherer.DITHER_TYPE_DEFAULT;
+        this.renderMonitor = new RenderMonitor();
+    }
+
+    /**
+     * Sets the dithering method used when mapping brightness values to characters.
+     *
+     * @param ditherType one of the dithering methods of {@link ErrorDiffusionDitherer}.
+     */
+    public void setDitherType(String ditherType) {
+        this.ditherType = ditherType;
+    }
+
+    /**
+     * Sets the contrast method applied to the brightness values before they are mapped to characters.
+     * The enhancer is created once here and reused by every conversion of this algorithm.
+     *
+     * @param contrastType one of the contrast methods of {@link ContrastEnhancer}.
+     */
+    public void setContrastType(String contrastType) {
+        this.contrastEnhancer = contrastType.equals(ContrastEnhancer.CONTRAST_TYPE_DEFAULT) ? null
+                : new ContrastEnhancer(contrastType);
+    }
+
+    /**
+     * Sets whether sub-images with a dominant edge are drawn with a directional character
+     * instead of a brightness character.
+     *
+     * @param edgeMode true to enable the edge characters of {@link EdgeCharMatcher}.
+     */
+    public void setEdgeMode(boolean edgeMode) {
+        this.edgeMode = edgeMode;
+    }
+
+    /**
+     * Sets the monitor the renders of this algorithm report their progress to and check for
+     * cancellation.
+     *
+     * @param renderMonitor the monitor of the render.
+     */
+    public void setRenderMonitor(RenderMonitor renderMonitor) {
+        this.renderMonitor = renderMonitor;
     }
 
     /**
@@ -41,69 +99,205 @@ public class AsciiArtAlgorithm {
      * calculating the brightness of each sub-image, and mapping the brightness to corresponding characters.
      *
      * @return a 2D char array representing the ASCII art image.
+     * @throws exceptions.RenderCancelledException if the monitor of the render was cancelled.
      */
     public char[][] run() {
-        // Check if the image, resolution, or character matcher has changed since the last run.
-        if (!(lastSubImageCharMatcher == subImageCharMatcher
-                && lastResolution == resolution && lastImage == image)) {
-            lastSubImageCharMatcher = subImageCharMatcher;
-            lastResolution = resolution;
-            lastImage = image;
+        renderMonitor.addTotalSteps(resolution * resolution);
+        double[][] brightnessGrid = calculateBrightnessGridWithCache(image, resolution, renderMonitor);
 
-            // Create a padded image with dimensions that are a power of two.
-            image = image.createPaddingImageToNextPowerOfTwo();
+        // Map the brightness of each sub-image to corresponding ASCII characters.
+        return overlayEdges(convertBrightness(brightnessGrid), resolution);
+    }
 
-            // Divide the image into smaller sub-images based on the resolution.
-            SubImage[][] divideImage = image.divideImage(resolution);
+    /**
+     * Generates an ASCII art representation of the image, calculating the brightness of the
+     * sub-images with the worker processes of a coordinator instead of in this process.
+     *
+     * @param shardCoordinator the coordinator of the worker processes.
+     * @return a 2D char array representing the ASCII art image.
+     * @throws exceptions.RenderCancelledException if the monitor of the render was cancelled.
+     */
+    public char[][] runSharded(ShardCoordinator shardCoordinator) {
+        renderMonitor.addTotalSteps(resolution * resolution);
+        renderMonitor.checkCancelled();
+        double[][] brightnessGrid;
+        try {
+            brightnessGrid = shardCoordinator.calculateBrightnessGrid(
+                    image.createPaddingImageToNextPowerOfTwo(), resolution,
+                    renderMonitor::isCancelled, renderMonitor::addDoneSteps);
+        } catch (CancellationException e) {
+            // The coordinator only stops early when the monitor was cancelled.
+            renderMonitor.checkCancelled();
+            throw e;
+        }
+        return overlayEdges(convertBrightness(brightnessGrid), resolution);
+    }
 
-            // Create a deep copy of the sub-image array for further processing.
-            lastSubImageArray = deepCopySubImageArray(divideImage);
+    /**
+     * Replaces the characters of sub-images with a dominant edge by directional characters, if the
+     * edge mode is on.
+     *
+     * @param tableCharImage the ASCII art, modified in place.
+     * @param artResolution  the resolution of the ASCII art.
+     * @return the ASCII art.
+     */
+    private char[][] overlayEdges(char[][] tableCharImage, int artResolution) {
+        if (!edgeMode) {
+            return tableCharImage;
         }
+        renderMonitor.checkCancelled();
+        char[][] edgeChars = matchEdgesWithCache(image, artResolution);
+        for (int i = 0; i < tableCharImage.length; i++) {
+            for (int j = 0; j < tableCharImage[0].length; j++) {
+                if (edgeChars[i][j] != EdgeCharMatcher.NO_EDGE_CHAR) {
+                    tableCharImage[i][j] = edgeChars[i][j];
+                }
+            }
+        }
+        return tableCharImage;
+    }
 
-        // Initialize a 2D char array to store the resulting ASCII art.
-        char[][] tableCharImage = new char[lastSubImageArray.length][lastSubImageArray[0].length];
+    /**
+     * Returns the directional characters of the image, matched again only if they are not cached for
+     * the image and resolution. Edges do not depend on the charset, so renders that only change the
+     * charset or rounding method reuse them. The cache is only touched to read or publish the result, so
+     * concurrent renders match their edges in parallel.
+     *
+     * @param image      the input image.
+     * @param resolution the resolution of the run.
+     * @return the directional characters of {@link EdgeCharMatcher#matchEdges(Image, int)}.
+     */
+    private static char[][] matchEdgesWithCache(Image image, int resolution) {
+        char[][] edgeChars = EDGE_CHARS.get(List.of(image, resolution));
+        if (edgeChars == null) {
+            edgeChars = EdgeCharMatcher.matchEdges(image.createPaddingImageToNextPowerOfTwo(), resolution);
+            publish(EDGE_CHARS, image, resolution, edgeChars);
+        }
+        return edgeChars;
+    }
 
-        // Process each sub-image, calculate its brightness, and map it to a corresponding ASCII character.
-        for (int i = 0; i < lastSubImageArray.length; i++) {
-            for (int j = 0; j < lastSubImageArray[0].length; j++) {
-                double subImageBrightness = lastSubImageArray[i][j].calculateBrightnessByImage();
-                tableCharImage[i][j] = subImageCharMatcher.getCharByImageBrightness(subImageBrightness);
+    /**
+     * Returns the brightness of every sub-image of the image, calculated again only if it is not cached
+     * for the image and resolution. The brightness is read straight from the luminance of the pixels of
+     * the padded view, so no sub-image is copied. The cache is only touched to read or publish the grid,
+     * so concurrent renders calculate in parallel, and renders of different resolutions of the same
+     * image do not evict each other. The grid is published only once it is complete, so a render
+     * cancelled in the middle leaves the cache as it was.
+     *
+     * @param image         the input image of the run.
+     * @param resolution    the resolution of the run.
+     * @param renderMonitor the monitor of the run, reported every row of sub-images and checked for
+     *                      cancellation before the next one.
+     * @return a 2D array with the brightness of each sub-image, between 0 and 1. It must not be modified.
+     */
+    private static double[][] calculateBrightnessGridWithCache(Image image, int resolution,
+                                                               RenderMonitor renderMonitor) {
+        double[][] brightnessGrid = BRIGHTNESS_GRIDS.get(List.of(image, resolution));
+        if (brightnessGrid != null) {
+            renderMonitor.addDoneSteps(resolution * resolution);
+            return brightnessGrid;
+        }
+        Image paddedImage = image.createPaddingImageToNextPowerOfTwo();
+        brightnessGrid = new double[resolution][resolution];
+        for (int row = 0; row < resolution; row++) {
+            renderMonitor.checkCancelled();
+            for (int column = 0; column < resolution; column++) {
+                brightnessGrid[row][column] = paddedImage.calculateBlockBrightness(resolution, row, column);
             }
+            renderMonitor.addDoneSteps(resolution);
         }
+        publish(BRIGHTNESS_GRIDS, image, resolution, brightnessGrid);
+        return brightnessGrid;
+    }
 
-        // Return the 2D char array representing the ASCII art image.
-        return tableCharImage;
+    /**
+     * Publishes a result to a cache keyed by image and resolution, dropping the results of every other
+     * image first, so the cache only ever holds the resolutions of the latest image.
+     *
+     * @param cache      the cache.
+     * @param image      the image the result was calculated for.
+     * @param resolution the resolution the result was calculated for.
+     * @param result     the result.
+     * @param <T>        the type of the result.
+     */
+    private static <T> void publish(Map<List<Object>, T> cache, Image image, int resolution, T result) {
+        cache.keySet().removeIf(key -> key.get(0) != image);
+        cache.put(List.of(image, resolution), result);
     }
 
     /**
-     * Creates a deep copy of a 2D array of SubImage objects.
+     * Generates an ASCII art representation of a new version of an image, recalculating the brightness
+     * only of the sub-images whose pixels changed since the cache was last updated. The brightness is
+     * then mapped and overlaid with edges as in {@link #run()}.
      *
-     * @param original the original 2D array of SubImage objects.
-     * @return a deep copy of the SubImage array.
+     * @param blockCache the brightness of the sub-images of the previous version of the image.
+     * @return a 2D char array representing the ASCII art image.
+     * @throws exceptions.RenderCancelledException if the monitor of the render was cancelled.
      */
-    private SubImage[][] deepCopySubImageArray(SubImage[][] original) {
-        // Create a new array of the same dimensions as the original.
-        SubImage[][] copy = new SubImage[original.length][];
-
-        // Iterate through each sub-image and copy its pixel data.
-        for (int i = 0; i < original.length; i++) {
-            copy[i] = new SubImage[original[i].length];
-            for (int j = 0; j < original[i].length; j++) {
-                SubImage originalSubImage = original[i][j];
-
-                // Create a copy of the pixel data for the current sub-image.
-                Color[][] pixelsCopy = new Color[originalSubImage.getHeight()][originalSubImage.getWidth()];
-                for (int x = 0; x < originalSubImage.getHeight(); x++) {
-                    for (int y = 0; y < originalSubImage.getWidth(); y++) {
-                        pixelsCopy[x][y] = new Color(originalSubImage.getPixel(x, y).getRGB());
-                    }
-                }
+    public char[][] runWithBlockCache(BlockBrightnessCache blockCache) {
+        renderMonitor.addTotalSteps(resolution * resolution);
+        renderMonitor.checkCancelled();
+        double[][] brightnessGrid = blockCache.update(image.createPaddingImageToNextPowerOfTwo(), resolution);
+        renderMonitor.addDoneSteps(resolution * resolution);
+        return overlayEdges(convertBrightness(brightnessGrid), resolution);
+    }
 
-                // Create a new SubImage with the copied pixel data.
-                copy[i][j] = new SubImage(pixelsCopy, originalSubImage.getWidth(),
-                        originalSubImage.getHeight());
+    /**
+     * Generates the ASCII art of the image for every power-of-two resolution from the resolution of
+     * this algorithm down to the given minimum. The pixels are summed once at the finest resolution
+     * and every coarser level is aggregated from the level above it. Edges are matched for every level
+     * with the edge mode on, as in {@link #run()}. The monitor is checked and reported every row of the
+     * finest sum, every level of the pyramid and every level converted.
+     *
+     * @param minResolution the coarsest resolution to generate.
+     * @return a map from resolution to its ASCII art, ordered from the coarsest resolution to the finest.
+     * @throws exceptions.RenderCancelledException if the monitor of the render was cancelled.
+     */
+    public SortedMap<Integer, char[][]> runSweep(int minResolution) {
+        // One step for every block summed or aggregated into a level, and one for every block converted.
+        int levelSteps = LuminancePyramid.countBlocks(resolution, minResolution);
+        renderMonitor.addTotalSteps(levelSteps + levelSteps);
+        double[][] finestLevel = calculateBrightnessGridWithCache(image, resolution, renderMonitor);
+        LuminancePyramid pyramid = new LuminancePyramid(finestLevel, minResolution, levelResolution -> {
+            renderMonitor.addDoneSteps(levelResolution * levelResolution);
+            renderMonitor.checkCancelled();
+        });
+        SortedMap<Integer, char[][]> tableCharImages = new TreeMap<>();
+        for (Map.Entry<Integer, double[][]> level : pyramid.getLevels().entrySet()) {
+            renderMonitor.checkCancelled();
+            tableCharImages.put(level.getKey(),
+                    overlayEdges(convertBrightness(level.getValue()), level.getKey()));
+            renderMonitor.addDoneSteps(level.getKey() * level.getKey());
+        }
+        return tableCharImages;
+    }
+
+    /**
+     * Maps a grid of sub-image brightness values to ASCII characters, using the contrast and
+     * dithering methods that were set on this algorithm.
+     *
+     * @param brightnessGrid the brightness of every sub-image, between 0 and 1. It is not modified.
+     * @return a 2D char array representing the ASCII art image.
+     */
+    public char[][] convertBrightness(double[][] brightnessGrid) {
+        if (contrastEnhancer != null) {
+            brightnessGrid = contrastEnhancer.enhance(brightnessGrid);
+        }
+        if (!ditherType.equals(ErrorDiffusionDitherer.DITHER_TYPE_DEFAULT)) {
+            return new ErrorDiffusionDitherer(ditherType).dither(brightnessGrid, charsetSnapshot);
+        }
+
+        // Initialize a 2D char array to store the resulting ASCII art.
+        char[][] tableCharImage = new char[brightnessGrid.length][brightnessGrid[0].length];
+
+        // Map the brightness of each sub-image to a corresponding ASCII character.
+        for (int i = 0; i < brightnessGrid.length; i++) {
+            for (int j = 0; j < brightnessGrid[0].length; j++) {
+                tableCharImage[i][j] = charsetSnapshot.getCharByImageBrightness(brightnessGrid[i][j]);
             }
         }
-        return copy;
+
+        // Return the 2D char array representing the ASCII art image.
+        return tableCharImage;
     }
 }
@@ -0,0 +1,186 @@
+package ascii_art;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * The ContrastEnhancer class spreads a grid of sub-image brightness values over the whole range
+ * between 0 and 1 before they are mapped to characters, so dark or washed-out images do not map
+ * almost entirely to one or two characters.
+ * <p>
+ * A histogram of the grid is built from striped per-thread histograms: thread {@code s} counts rows
+ * {@code s}, {@code s + stripes}, ..., into its own histogram, so no counter is shared, and the
+ * stripes are merged at the end. The histograms and the equalization table are allocated once per
+ * enhancer and cleared on every call, so only the resulting grid is allocated. An enhancer must
+ * therefore not be used by two threads at once; every {@link AsciiArtAlgorithm} keeps its own.
+ * Contrast stretching maps the range between the 1st and 99th percentiles linearly to [0, 1], and
+ * histogram equalization maps every value to its cumulative frequency.
+ * </p>
+ */
+public class ContrastEnhancer {
+
+    /**
+     * The default contrast method, brightness values are used as they are.
+     */
+    public static final String CONTRAST_TYPE_DEFAULT = "none";
+
+    /**
+     * Linear contrast stretching between the 1st and 99th percentiles.
+     */
+    public static final String CONTRAST_TYPE_STRETCH = "stretch";
+
+    /**
+     * Histogram equalization.
+     */
+    public static final String CONTRAST_TYPE_EQUALIZE = "equalize";
+
+    private static final int BINS = 256;
+    private static final double STRETCH_CLIP_FRACTION = 0.01;
+    private static final double MIN_BRIGHTNESS = 0.0;
+    private static final double MAX_BRIGHTNESS = 1.0;
+
+    private final boolean equalize;
+    private final int[][] stripeHistograms;
+    private final int[] histogram;
+    private final double[] equalizedLevels;
+
+    /**
+     * Constructor for creating a ContrastEnhancer with the given contrast method.
+     *
+     * @param contrastType {@link #CONTRAST_TYPE_STRETCH} or {@link #CONTRAST_TYPE_EQUALIZE}.
+     * @throws IllegalArgumentException if the contrast method changes nothing or is unknown.
+     */
+    public ContrastEnhancer(String contrastType) {
+        switch (contrastType) {
+            case CONTRAST_TYPE_STRETCH -> equalize = false;
+            case CONTRAST_TYPE_EQUALIZE -> equalize = true;
+            default -> throw new IllegalArgumentException(contrastType);
+        }
+        this.stripeHistograms = new int[Runtime.getRuntime().availableProcessors()][BINS];
+        this.histogram = new int[BINS];
+        this.equalizedLevels = new double[BINS];
+    }
+
+    /**
+     * Enhances the contrast of a brightness grid.
+     *
+     * @param brightnessGrid the brightness of every sub-image, between 0 and 1. It is not modified.
+     * @return a new grid of the same dimensions, with brightness values between 0 and 1.
+     */
+    public double[][] enhance(double[][] brightnessGrid) {
+        buildHistogram(brightnessGrid);
+        int total = brightnessGrid.length * brightnessGrid[0].length;
+        return equalize ? equalize(brightnessGrid, total) : stretch(brightnessGrid, total);
+    }
+
+    /**
+     * Builds the histogram of the grid from one histogram per stripe of rows.
+     *
+     * @param brightnessGrid the brightness of every sub-image.
+     */
+    private void buildHistogram(double[][] brightnessGrid) {
+        int stripes = Math.min(stripeHistograms.length, brightnessGrid.length);
+        IntStream.range(0, stripes).parallel().forEach(stripe -> {
+            int[] stripeHistogram = stripeHistograms[stripe];
+            Arrays.fill(stripeHistogram, 0);
+            for (int row = stripe; row < brightnessGrid.length; row += stripes) {
+                for (double brightness : brightnessGrid[row]) {
+                    stripeHistogram[bin(brightness)]++;
+                }
+            }
+        });
+        Arrays.fill(histogram, 0);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            for (int bin = 0; bin < BINS; bin++) {
+                histogram[bin] += stripeHistograms[stripe][bin];
+            }
+        }
+    }
+
+    /**
+     * Stretches the range between the clipped lowest and highest bins to [0, 1].
+     *
+     * @param brightnessGrid the brightness of every sub-image.
+     * @param total          the number of sub-images.
+     * @return the stretched grid.
+     */
+    private double[][] stretch(double[][] brightnessGrid, int total) {
+        long clip = (long) (total * STRETCH_CLIP_FRACTION);
+        // Skip the darkest and brightest bins up to the clip fraction.
+        int lowBin = 0;
+        long darker = histogram[lowBin];
+        while (darker <= clip && lowBin < BINS - 1) {
+            darker += histogram[++lowBin];
+        }
+        int highBin = BINS - 1;
+        long brighter = histogram[highBin];
+        while (brighter <= clip && highBin > 0) {
+            brighter += histogram[--highBin];
+        }
+        if (highBin <= lowBin) {
+            return mapGrid(brightnessGrid, brightness -> brightness);
+        }
+        double low = (double) lowBin / BINS;
+        double high = (double) (highBin + 1) / BINS;
+        return mapGrid(brightnessGrid, brightness -> (brightness - low) / (high - low));
+    }
+
+    /**
+     * Maps every value to the fraction of values in lower bins, counting half of its own bin, rescaled
+     * so the darkest bin maps to 0 and the brightest to 1.
+     *
+     * @param brightnessGrid the brightness of every sub-image.
+     * @param total          the number of sub-images.
+     * @return the equalized grid.
+     */
+    private double[][] equalize(double[][] brightnessGrid, int total) {
+        int firstBin = 0;
+        while (histogram[firstBin] == 0) {
+            firstBin++;
+        }
+        int lastBin = BINS - 1;
+        while (histogram[lastBin] == 0) {
+            lastBin--;
+        }
+        if (firstBin == lastBin) {
+            return mapGrid(brightnessGrid, brightness -> brightness);
+        }
+        double first = histogram[firstBin] / 2.0;
+        double last = total - histogram[lastBin] / 2.0;
+        long below = 0;
+        for (int bin = 0; bin < BINS; bin++) {
+            equalizedLevels[bin] = (below + histogram[bin] / 2.0 - first) / (last - first);
+            below += histogram[bin];
+        }
+        return mapGrid(brightnessGrid, brightness -> equalizedLevels[bin(brightness)]);
+    }
+
+    /**
+     * Applies a mapping to every value of the grid in parallel rows, clamping the result to [0, 1].
+     *
+     * @param brightnessGrid the brightness of every sub-image.
+     * @param mapping        the mapping of a single value.
+     * @return the mapped grid.
+     */
+    private static double[][] mapGrid(double[][] brightnessGrid, DoubleUnaryOperator mapping) {
+        double[][] mappedGrid = new double[brightnessGrid.length][brightnessGrid[0].length];
+        IntStream.range(0, brightnessGrid.length).parallel().forEach(row -> {
+            for (int column = 0; column < brightnessGrid[row].length; column++) {
+                mappedGrid[row][column] = Math.min(MAX_BRIGHTNESS, Math.max(MIN_BRIGHTNESS,
+                        mapping.applyAsDouble(brightnessGrid[row][column])));
+            }
+        });
+        return mappedGrid;
+    }
+
+    /**
+     * Gets the histogram bin of a brightness value.
+     *
+     * @param brightness the brightness, clamped to [0, 1].
+     * @return the bin, between 0 and {@code BINS - 1}.
+     */
+    private static int bin(double brightness) {
+        return Math.min(BINS - 1, Math.max(0, (int) (brightness * BINS)));
+    }
+}
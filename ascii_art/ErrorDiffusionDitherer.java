@@ -0,0 +1,134 @@
+package ascii_art;
+
+import image_char_matching.CharsetSnapshot;
+
+import java.util.stream.IntStream;
+
+/**
+ * The ErrorDiffusionDitherer class maps a grid of sub-image brightness values to characters while
+ * diffusing the quantization error of every chosen character to its not yet processed neighbours.
+ * <p>
+ * Both supported kernels (Floyd-Steinberg and Atkinson) only push error to the right on the same row
+ * and to the rows below. Cell (row, col) therefore depends only on cells with a smaller value of
+ * {@code col + 2 * row}, so all cells on the same anti-diagonal wavefront {@code col + 2 * row = t}
+ * are independent and are quantized in parallel. Each cell pulls the error of its predecessors
+ * instead of pushing into its successors, so no two threads ever write the same cell and the
+ * result is identical to the sequential scan.
+ * </p>
+ */
+public class ErrorDiffusionDitherer {
+
+    /**
+     * The default dithering method, every brightness value is mapped on its own.
+     */
+    public static final String DITHER_TYPE_DEFAULT = "none";
+
+    /**
+     * Floyd-Steinberg error diffusion, the whole error is spread over four neighbours.
+     */
+    public static final String DITHER_TYPE_FLOYD_STEINBERG = "floyd";
+
+    /**
+     * Atkinson error diffusion, three quarters of the error are spread over six neighbours.
+     */
+    public static final String DITHER_TYPE_ATKINSON = "atkinson";
+
+    // Kernels as {row offset, column offset} of the neighbours that receive error, with their weights.
+    private static final int[][] FLOYD_STEINBERG_OFFSETS = {{0, 1}, {1, -1}, {1, 0}, {1, 1}};
+    private static final double[] FLOYD_STEINBERG_WEIGHTS = {7.0 / 16, 3.0 / 16, 5.0 / 16, 1.0 / 16};
+    private static final int[][] ATKINSON_OFFSETS = {{0, 1}, {0, 2}, {1, -1}, {1, 0}, {1, 1}, {2, 0}};
+    private static final double[] ATKINSON_WEIGHTS = {1.0 / 8, 1.0 / 8, 1.0 / 8, 1.0 / 8, 1.0 / 8, 1.0 / 8};
+    private static final int ROW_OFFSET = 0;
+    private static final int COLUMN_OFFSET = 1;
+    private static final int WAVEFRONT_ROW_STEP = 2;
+    private static final int PARALLEL_WAVEFRONT_THRESHOLD = 64;
+    private static final double MIN_BRIGHTNESS = 0.0;
+    private static final double MAX_BRIGHTNESS = 1.0;
+    private static final double NO_ERROR = 0.0;
+
+    private final int[][] offsets;
+    private final double[] weights;
+
+    /**
+     * Constructor for creating an ErrorDiffusionDitherer with the kernel of the given dithering method.
+     *
+     * @param ditherType {@link #DITHER_TYPE_FLOYD_STEINBERG} or {@link #DITHER_TYPE_ATKINSON}.
+     * @throws IllegalArgumentException if the dithering method has no diffusion kernel.
+     */
+    public ErrorDiffusionDitherer(String ditherType) {
+        switch (ditherType) {
+            case DITHER_TYPE_FLOYD_STEINBERG -> {
+                offsets = FLOYD_STEINBERG_OFFSETS;
+                weights = FLOYD_STEINBERG_WEIGHTS;
+            }
+            case DITHER_TYPE_ATKINSON -> {
+                offsets = ATKINSON_OFFSETS;
+                weights = ATKINSON_WEIGHTS;
+            }
+            default -> throw new IllegalArgumentException(ditherType);
+        }
+    }
+
+    /**
+     * Maps every brightness value of the grid to a character of the matcher, diffusing the
+     * difference between the wanted brightness and the brightness of the chosen character.
+     *
+     * @param brightnessGrid the brightness of every sub-image, between 0 and 1.
+     * @param charset        the charset snapshot to quantize with.
+     * @return a 2D char array of the same dimensions as the brightness grid.
+     */
+    public char[][] dither(double[][] brightnessGrid, CharsetSnapshot charset) {
+        int rows = brightnessGrid.length;
+        int columns = brightnessGrid[0].length;
+        char[][] tableCharImage = new char[rows][columns];
+        double[][] errors = new double[rows][columns];
+
+        // Walk the wavefronts in order, every wavefront only reads errors of earlier ones.
+        int lastWavefront = (columns - 1) + WAVEFRONT_ROW_STEP * (rows - 1);
+        for (int wavefront = 0; wavefront <= lastWavefront; wavefront++) {
+            int firstRow = Math.max(0, (wavefront - columns + WAVEFRONT_ROW_STEP) / WAVEFRONT_ROW_STEP);
+            int lastRow = Math.min(rows - 1, wavefront / WAVEFRONT_ROW_STEP);
+            int currentWavefront = wavefront;
+            if (lastRow - firstRow + 1 >= PARALLEL_WAVEFRONT_THRESHOLD) {
+                IntStream.rangeClosed(firstRow, lastRow).parallel().forEach(row ->
+                        quantizeCell(brightnessGrid, errors, tableCharImage, charset, row,
+                                currentWavefront - WAVEFRONT_ROW_STEP * row));
+            } else {
+                for (int row = firstRow; row <= lastRow; row++) {
+                    quantizeCell(brightnessGrid, errors, tableCharImage, charset, row,
+                            wavefront - WAVEFRONT_ROW_STEP * row);
+                }
+            }
+        }
+        return tableCharImage;
+    }
+
+    /**
+     * Quantizes a single cell: adds the error diffused from its predecessors, picks the character
+     * and stores the remaining error for its successors.
+     *
+     * @param brightnessGrid the brightness of every sub-image.
+     * @param errors         the quantization error of every already processed cell.
+     * @param tableCharImage the resulting characters.
+     * @param charset        the charset snapshot to quantize with.
+     * @param row            the row of the cell.
+     * @param column         the column of the cell.
+     */
+    private void quantizeCell(double[][] brightnessGrid, double[][] errors, char[][] tableCharImage,
+                              CharsetSnapshot charset, int row, int column) {
+        double brightness = brightnessGrid[row][column];
+        for (int k = 0; k < offsets.length; k++) {
+            int sourceRow = row - offsets[k][ROW_OFFSET];
+            int sourceColumn = column - offsets[k][COLUMN_OFFSET];
+            if (sourceRow >= 0 && sourceColumn >= 0 && sourceColumn < errors[0].length) {
+                brightness += weights[k] * errors[sourceRow][sourceColumn];
+            }
+        }
+        brightness = Math.min(MAX_BRIGHTNESS, Math.max(MIN_BRIGHTNESS, brightness));
+
+        char closestChar = charset.getCharByImageBrightness(brightness);
+        double charBrightness = charset.getNormalBrightnessByChar(closestChar);
+        tableCharImage[row][column] = closestChar;
+        errors[row][column] = Double.isNaN(charBrightness) ? NO_ERROR : brightness - charBrightness;
+    }
+}
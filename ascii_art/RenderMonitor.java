@@ -0,0 +1,85 @@
+package ascii_art;
+
+import exceptions.RenderCancelledException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The RenderMonitor class is shared between a render of {@link AsciiArtAlgorithm} and the thread that
+ * started it. The render reports its progress in steps, one step for every sub-image whose brightness
+ * it calculates, added a whole row of sub-images at a time (or all at once if the grid is cached),
+ * and a tile of rows at a time when worker processes calculate it. A sweep adds one step for every
+ * sub-image of each level of its pyramid and again for every sub-image of each level it converts.
+ * Between rows, tiles and levels it checks whether it was cancelled, so a cancelled render stops at
+ * the next check instead of being interrupted.
+ */
+public class RenderMonitor {
+
+    private static final String MSG_RENDER_CANCELLED = "Render cancelled.";
+
+    private final AtomicInteger doneSteps = new AtomicInteger();
+    private final AtomicInteger totalSteps = new AtomicInteger();
+    private volatile boolean cancelled;
+
+    /**
+     * Adds steps the render is about to take to the total number of steps.
+     *
+     * @param steps the number of steps.
+     */
+    public void addTotalSteps(int steps) {
+        totalSteps.addAndGet(steps);
+    }
+
+    /**
+     * Reports that more steps were taken.
+     *
+     * @param steps the number of steps taken since the last report.
+     */
+    public void addDoneSteps(int steps) {
+        doneSteps.addAndGet(steps);
+    }
+
+    /**
+     * Gets the number of steps taken so far.
+     *
+     * @return the number of steps taken.
+     */
+    public int getDoneSteps() {
+        return doneSteps.get();
+    }
+
+    /**
+     * Gets the total number of steps known so far.
+     *
+     * @return the number of steps, 0 if the render has not started yet.
+     */
+    public int getTotalSteps() {
+        return totalSteps.get();
+    }
+
+    /**
+     * Asks the render to stop at its next check.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks whether the render was asked to stop.
+     *
+     * @return true if the render was cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops the render if it was cancelled.
+     *
+     * @throws RenderCancelledException if the render was cancelled.
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new RenderCancelledException(MSG_RENDER_CANCELLED);
+        }
+    }
+}
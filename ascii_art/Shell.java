@@ -1,12 +1,46 @@
 package ascii_art;
 import ascii_output.ConsoleAsciiOutput;
 import ascii_output.HtmlAsciiOutput;
+import ascii_output.PngAsciiOutput;
+import ascii_output.RleAsciiOutput;
+import ascii_output.RleAsciiReader;
 import exceptions.BadCommandExeption;
 import exceptions.BadExtraArgsException;
+import exceptions.RenderCancelledException;
 import exceptions.UnKnownCategoryException;
+import image.BlockBrightnessCache;
 import image.Image;
+import image.MappedImage;
 import image_char_matching.SubImgCharMatcher;
+import tile_sharding.ShardCoordinator;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * The Shell class is responsible for handling user input, executing various commands, and interacting
@@ -16,6 +50,8 @@ public class Shell {
     // Constants
     private static final String OUTPUT_TYPE_DEFAULT = "console";
     private static final String OUTPUT_NAME_HTML_FILE_DEFAULT = "out.html";
+    private static final String OUTPUT_NAME_PNG_FILE_DEFAULT = "out.png";
+    private static final String OUTPUT_NAME_RLE_FILE_DEFAULT = "out.asr";
     private static final String OUTPUT_WRITE_STYLE_HTML_FILE_DEFAULT = "Courier New";
     private static final String EMPTY_STRING  = " ";
     private static final String STRING_TO_GET_INPUT_FROM_USER = ">>> ";
@@ -30,12 +66,33 @@ public class Shell {
     private static final String VALUE_TO_DECREASE_RESOLUTION = "down";
     private static final String VALUE_TO_CHANGE_ROUND_TYPE = "round";
     private static final String VALUE_TO_CHANGE_OUTPUT_TYPE = "output";
+    private static final String VALUE_TO_CHANGE_DITHER_TYPE = "dither";
+    private static final String VALUE_TO_CHANGE_CONTRAST_TYPE = "contrast";
+    private static final String VALUE_TO_CHANGE_EDGE_MODE = "edges";
+    private static final String EDGE_MODE_ON = "on";
+    private static final String EDGE_MODE_OFF = "off";
+    private static final String VALUE_TO_CHANGE_SHARDS = "shards";
     private static final String VALUE_TO_RUN_ALGORITHM = "asciiArt";
+    private static final String VALUE_TO_RUN_SWEEP = "sweep";
+    private static final String VALUE_TO_WATCH_IMAGE = "watch";
+    private static final String VALUE_TO_VIEW_FILE = "view";
+    private static final String VALUE_TO_CANCEL_RENDER = "cancel";
+    private static final String VALUE_TO_PRINT_PROGRESS = "progress";
     private static final String MSG_INCORRECT_COMMAND_FORMAT = "Did not execute due to incorrect command.";
     private static final String MSG_INCORRECT_OUTPUT_COMMAND_FORMAT
             = "Did not change output method due to incorrect format.";
     private static final String MSG_INCORRECT_ROUNDING_COMMAND_FORMAT
             = "Did not change rounding method due to incorrect format.";
+    private static final String MSG_INCORRECT_DITHER_COMMAND_FORMAT
+            = "Did not change dithering method due to incorrect format.";
+    private static final String MSG_INCORRECT_CONTRAST_COMMAND_FORMAT
+            = "Did not change contrast method due to incorrect format.";
+    private static final String MSG_INCORRECT_EDGE_MODE_COMMAND_FORMAT
+            = "Did not change edge mode due to incorrect format.";
+    private static final String MSG_INCORRECT_SHARDS_COMMAND_FORMAT
+            = "Did not change worker processes due to incorrect format.";
+    private static final String BEGIN_MSG_SHARDS_SET = "Worker processes set to ";
+    private static final String END_MSG_SHARDS_SET = ".";
     private static final String MSG_CHANGE_RESOLUTION_SET = "Resolution set to ";
     private static final String END_MSG_CHANGE_RESOLUTION_SET = ".";
     private static final String MSG_INCORRECT_BOUNDARIES_RESOLUTION_COMMAND_FORMAT
@@ -44,10 +101,49 @@ public class Shell {
     private static final String END_MSG_INCORRECT_ACTION_UPDATE_SET = " due to incorrect format.";
     private static final String
             MSG_INCORRECT_RESOLUTION_COMMAND_FORMAT = "Did not change resolution due to incorrect format.";
+    private static final String MSG_INCORRECT_BOUNDARIES_SWEEP_COMMAND_FORMAT
+            = "Did not execute sweep due to exceeding boundaries.";
+    private static final String BEGIN_MSG_SWEEP_RESOLUTION = "Resolution ";
+    private static final String END_MSG_SWEEP_RESOLUTION = ":";
+    private static final String SWEEP_FILE_PREFIX = "out_";
+    private static final String HTML_FILE_SUFFIX = ".html";
+    private static final String PNG_FILE_SUFFIX = ".png";
+    private static final String RLE_FILE_SUFFIX = ".asr";
+    private static final String MSG_NO_IMAGE_FILE_TO_WATCH
+            = "Did not watch because the image was not loaded from a file.";
+    private static final String BEGIN_MSG_WATCHING = "Watching ";
+    private static final String END_MSG_WATCHING = ", press Enter to stop.";
+    private static final String BEGIN_MSG_WATCH_RENDERED = "Recalculated ";
+    private static final String MIDDLE_MSG_WATCH_RENDERED = " of ";
+    private static final String END_MSG_WATCH_RENDERED = " blocks.";
     private static final String BEGIN_MSG_ERR_LOADING_IMAGE = "Error loading image: ";
+    private static final String MSG_RENDER_CANCELLED = "Render cancelled.";
+    private static final String BEGIN_MSG_RENDER_FAILED = "Render failed: ";
+    private static final String MSG_NO_RENDER_RUNNING = "No render is running.";
+    private static final String BEGIN_MSG_CANCELLING_RENDERS = "Cancelling ";
+    private static final String END_MSG_CANCELLING_RENDERS = " render(s).";
+    private static final String MSG_NO_RENDER_TO_CANCEL = "No render to cancel.";
+    private static final String BEGIN_MSG_RENDER_PROGRESS = "Progress: ";
+    private static final String MIDDLE_MSG_RENDER_PROGRESS = " of ";
+    private static final String END_MSG_RENDER_PROGRESS = " steps";
+    private static final String BEGIN_MSG_QUEUED_RENDERS = ", ";
+    private static final String END_MSG_QUEUED_RENDERS = " more render(s) queued";
+    private static final String END_MSG_PROGRESS = ".";
+    private static final String BEGIN_MSG_ERR_READING_FILE = "Did not view file: ";
+    private static final String MSG_INCORRECT_VIEW_COMMAND_FORMAT
+            = "Did not view file due to incorrect format.";
     private static final String MSG_INVALID_SET = "Did not execute. Charset is too small";
+    private static final String MSG_NOT_AVAILABLE_IN_SCRIPT
+            = "Did not execute because the command is not available in a script.";
     private static final String OUTPUT_TYPE_2 = "html";
+    private static final String OUTPUT_TYPE_3 = "png";
+    private static final String OUTPUT_TYPE_4 = "rle";
     private static final String STRING_TO_SPLIT = " ";
+    private static final String[] PNM_SUFFIXES = {".pgm", ".ppm", ".pnm"};
+    private static final String RAW_RGBA_SUFFIX = ".rgba";
+    private static final String RAW_RGB_SUFFIX = ".rgb";
+    private static final String SCRIPT_FLAG = "--script";
+    private static final String SCRIPT_FROM_STANDARD_INPUT = "-";
     private static final char[] CHARSET_VALUES_DEFAULT = {'0','1','2', '3', '4', '5', '6', '7', '8', '9'};
     private static final char SECOND_CHAR_VALUE_ADD_RANGE = '-';
     private static final char SPACE_CHAR_VALUE = ' ';
@@ -65,12 +161,37 @@ public class Shell {
     private static final int MIN_CHARS_IN_ROW = 1;
     private static final int CORRECT_NUMBER_OF_ARG = 1;
     private static final int IMG_ARG_INDEX = 0;
+    private static final int RAW_IMAGE_NUMBER_OF_ARG = 3;
+    private static final int WIDTH_ARG_INDEX = 1;
+    private static final int HEIGHT_ARG_INDEX = 2;
+    private static final int SCRIPT_NUMBER_OF_ARG = 2;
+    private static final int NOT_RAW_IMAGE = 0;
+    private static final long WATCH_POLL_MILLIS = 100;
+    private static final long WATCH_DEBOUNCE_MILLIS = 200;
     private static final int MIN_CHARS_IN_CHARSET = 2;
+    private static final int NO_SHARDS = 0;
+    private static final int MAX_SHARDS = 16;
+    private static final String INPUT_THREAD_NAME = "shell-input";
     private final SubImgCharMatcher matcher;
     private final ConsoleAsciiOutput console;
     private final HtmlAsciiOutput htmlOutput;
+    private final PngAsciiOutput pngOutput;
+    private final RleAsciiOutput rleOutput;
+    private final Queue<RenderMonitor> activeRenders;
+    private final BlockingQueue<String> inputLines;
     private Image image;
+    private String imageName;
+    private int rawWidth;
+    private int rawHeight;
+    private PrintStream out;
+    private ExecutorService renderExecutor;
+    private ShardCoordinator shardCoordinator;
+    private ExecutorService scriptRenderPool;
+    private Deque<CompletableFuture<Runnable>> scriptSteps;
     private String outputType;
+    private String ditherType;
+    private String contrastType;
+    private boolean edgeMode;
     private int resolution;
 
     /**
@@ -80,9 +201,17 @@ public class Shell {
         this.outputType = OUTPUT_TYPE_DEFAULT;
         this.matcher = new SubImgCharMatcher(CHARSET_VALUES_DEFAULT);
         this.resolution = RESOLUTION_DEFAULT;
+        this.ditherType = ErrorDiffusionDitherer.DITHER_TYPE_DEFAULT;
+        this.contrastType = ContrastEnhancer.CONTRAST_TYPE_DEFAULT;
         this.htmlOutput = new HtmlAsciiOutput(OUTPUT_NAME_HTML_FILE_DEFAULT,
                 OUTPUT_WRITE_STYLE_HTML_FILE_DEFAULT);
+        this.pngOutput = new PngAsciiOutput(OUTPUT_NAME_PNG_FILE_DEFAULT,
+                OUTPUT_WRITE_STYLE_HTML_FILE_DEFAULT);
+        this.rleOutput = new RleAsciiOutput(OUTPUT_NAME_RLE_FILE_DEFAULT, true);
         this.console = new ConsoleAsciiOutput();
+        this.activeRenders = new ConcurrentLinkedQueue<>();
+        this.inputLines = new LinkedBlockingQueue<>();
+        this.out = System.out;
     }
 
     /**
@@ -92,34 +221,326 @@ public class Shell {
      * @throws IOException if there is an error loading the image.
      */
     public void run(String imageName) throws IOException {
-        this.image = new Image(imageName);
-        String input;
-        while (true) {
-            System.out.print(STRING_TO_GET_INPUT_FROM_USER);
-            input = KeyboardInput.readLine();
-            try {
-                String[] parts = input.split(STRING_TO_SPLIT, COUNT_DIVIDE_PARTS);
-                String firstWord = parts[INDEX_OF_FIRST_WORD];
-                String secondWord = parts.length > SECOND_WORD_INDEX ? parts[SECOND_WORD_INDEX] : EMPTY_STRING;
-                if (input.equals(VALUE_TO_STOP_RUNNING_PROGRAM)) {
+        this.imageName = imageName;
+        run(loadImage(imageName));
+    }
+
+    /**
+     * Runs the shell on an already loaded image, prompting for user input and executing
+     * corresponding commands. Renders run one after the other on a background thread, so the prompt
+     * stays responsive and a running render can be followed with "progress" and stopped with "cancel".
+     * Exiting waits for the renders that were not cancelled. The input is read by a single thread, so
+     * a command that waits for Enter, like 'watch', sees the same lines as the prompt.
+     *
+     * @param image the image to convert.
+     */
+    public void run(Image image) {
+        this.image = image;
+        renderExecutor = Executors.newSingleThreadExecutor();
+        Thread inputThread = new Thread(this::readInputLines, INPUT_THREAD_NAME);
+        inputThread.setDaemon(true);
+        inputThread.start();
+        try {
+            while (true) {
+                System.out.print(STRING_TO_GET_INPUT_FROM_USER);
+                if (!executeCommand(inputLines.take())) {
                     return;
                 }
-                switch (firstWord) {
-                    case VALUE_TO_PRINT_CHARSET -> printCharset();
-                    case VALUE_TO_ADD_VALUE_TO_CHARSET ->
-                            updateCharset(secondWord, VALUE_TO_ADD_VALUE_TO_CHARSET);
-                    case VALUE_TO_REMOVE_VALUE_TO_CHARSET ->
-                            updateCharset(secondWord, VALUE_TO_REMOVE_VALUE_TO_CHARSET);
-                    case VALUE_TO_RUN_ALGORITHM -> runAsciiArt();
-                    case VALUE_TO_CHANGE_RESOLUTION -> updateResolution(secondWord);
-                    case VALUE_TO_CHANGE_ROUND_TYPE -> roundBrightnessChar(secondWord);
-                    case VALUE_TO_CHANGE_OUTPUT_TYPE -> updateOutputType(secondWord);
-                    default -> throw new UnKnownCategoryException(MSG_INCORRECT_COMMAND_FORMAT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            renderExecutor.shutdown();
+            try {
+                renderExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            renderExecutor = null;
+            closeShardCoordinator();
+        }
+    }
+
+    /**
+     * Reads the lines of the user into the input queue until the input ends, which then asks the shell
+     * to stop like the exit command.
+     */
+    private void readInputLines() {
+        try {
+            for (String line = KeyboardInput.readLine(); line != null; line = KeyboardInput.readLine()) {
+                inputLines.add(line);
+            }
+        } finally {
+            inputLines.add(VALUE_TO_STOP_RUNNING_PROGRAM);
+        }
+    }
+
+    /**
+     * Runs the shell on a script of commands, one command per line. The whole script is read before
+     * any command is executed. Commands that change settings are executed in order, while every render
+     * is computed in the background with the settings it was given in the script, so independent
+     * renders run concurrently. The output of all the commands, including the renders, is still
+     * printed in the order of the script. The 'watch', 'cancel' and 'progress' commands are rejected
+     * like an incorrect command, since they depend on the user or on the timing of the renders.
+     *
+     * @param image  the image to convert.
+     * @param script the reader of the script.
+     * @throws IOException if there is an error reading the script.
+     */
+    public void runScript(Image image, BufferedReader script) throws IOException {
+        this.image = image;
+        List<String> commands = new ArrayList<>();
+        for (String line = script.readLine(); line != null; line = script.readLine()) {
+            if (!line.isBlank()) {
+                commands.add(line.strip());
+            }
+        }
+
+        scriptRenderPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        scriptSteps = new ArrayDeque<>();
+        try {
+            for (String command : commands) {
+                // Capture the messages of the command, they are printed after all earlier renders.
+                ByteArrayOutputStream messages = new ByteArrayOutputStream();
+                out = new PrintStream(messages, true);
+                boolean keepRunning = executeCommand(command);
+                out = System.out;
+                String text = messages.toString();
+                if (!text.isEmpty()) {
+                    scriptSteps.add(CompletableFuture.completedFuture(() -> System.out.print(text)));
+                }
+                printFinishedScriptSteps(false);
+                if (!keepRunning) {
+                    break;
                 }
-            } catch (BadCommandExeption e) {
-                System.out.println(e.getMessage());
             }
+            printFinishedScriptSteps(true);
+        } finally {
+            out = System.out;
+            scriptRenderPool.shutdownNow();
+            scriptRenderPool = null;
+            scriptSteps = null;
+            closeShardCoordinator();
+        }
+    }
+
+    /**
+     * Performs the output of the script steps at the head of the queue, in order.
+     *
+     * @param waitForAll whether to wait for unfinished renders, or to stop at the first one.
+     */
+    private void printFinishedScriptSteps(boolean waitForAll) {
+        while (!scriptSteps.isEmpty() && (waitForAll || scriptSteps.peek().isDone())) {
+            scriptSteps.poll().join().run();
+        }
+    }
+
+    /**
+     * Parses and executes a single command, printing the error message of an incorrect command.
+     *
+     * @param input the command line.
+     * @return false if the command asks to stop running, true otherwise.
+     */
+    private boolean executeCommand(String input) {
+        try {
+            String[] parts = input.split(STRING_TO_SPLIT, COUNT_DIVIDE_PARTS);
+            String firstWord = parts[INDEX_OF_FIRST_WORD];
+            String secondWord = parts.length > SECOND_WORD_INDEX ? parts[SECOND_WORD_INDEX] : EMPTY_STRING;
+            if (input.equals(VALUE_TO_STOP_RUNNING_PROGRAM)) {
+                return false;
+            }
+            switch (firstWord) {
+                case VALUE_TO_PRINT_CHARSET -> printCharset();
+                case VALUE_TO_ADD_VALUE_TO_CHARSET ->
+                        updateCharset(secondWord, VALUE_TO_ADD_VALUE_TO_CHARSET);
+                case VALUE_TO_REMOVE_VALUE_TO_CHARSET ->
+                        updateCharset(secondWord, VALUE_TO_REMOVE_VALUE_TO_CHARSET);
+                case VALUE_TO_RUN_ALGORITHM -> render(this::prepareAsciiArt);
+                case VALUE_TO_RUN_SWEEP -> render(this::prepareSweep);
+                case VALUE_TO_WATCH_IMAGE -> {
+                    requireInteractive();
+                    watchImage();
+                }
+                case VALUE_TO_VIEW_FILE -> render(renderMonitor -> prepareView(secondWord));
+                case VALUE_TO_CANCEL_RENDER -> {
+                    requireInteractive();
+                    cancelRenders();
+                }
+                case VALUE_TO_PRINT_PROGRESS -> {
+                    requireInteractive();
+                    printRenderProgress();
+                }
+                case VALUE_TO_CHANGE_RESOLUTION -> updateResolution(secondWord);
+                case VALUE_TO_CHANGE_ROUND_TYPE -> roundBrightnessChar(secondWord);
+                case VALUE_TO_CHANGE_OUTPUT_TYPE -> updateOutputType(secondWord);
+                case VALUE_TO_CHANGE_DITHER_TYPE -> updateDitherType(secondWord);
+                case VALUE_TO_CHANGE_CONTRAST_TYPE -> updateContrastType(secondWord);
+                case VALUE_TO_CHANGE_EDGE_MODE -> updateEdgeMode(secondWord);
+                case VALUE_TO_CHANGE_SHARDS -> updateShards(secondWord);
+                default -> throw new UnKnownCategoryException(MSG_INCORRECT_COMMAND_FORMAT);
+            }
+        } catch (BadCommandExeption e) {
+            out.println(e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Rejects a command that acts on the user or on the renders in flight, which a script cannot do
+     * deterministically: its renders run concurrently, and nothing ends the watching of a file.
+     */
+    private void requireInteractive() {
+        if (scriptRenderPool != null) {
+            throw new BadCommandExeption(MSG_NOT_AVAILABLE_IN_SCRIPT);
+        }
+    }
+
+    /**
+     * Prepares and runs a render. In script mode the render is computed in the background and its
+     * output is queued after the earlier script steps. Interactively it is queued on the background
+     * render thread, which outputs it as soon as it is computed. Without either it is computed and
+     * output immediately.
+     *
+     * @param prepare prepares a render with the monitor it reports to, returning a render that computes
+     *                its result and returns the action that outputs it.
+     */
+    private void render(Function<RenderMonitor, Supplier<Runnable>> prepare) {
+        RenderMonitor renderMonitor = new RenderMonitor();
+        Supplier<Runnable> render = prepare.apply(renderMonitor);
+        activeRenders.add(renderMonitor);
+        Supplier<Runnable> monitoredRender = () -> runMonitoredRender(render, renderMonitor);
+        if (scriptRenderPool != null) {
+            scriptSteps.add(CompletableFuture.supplyAsync(monitoredRender, scriptRenderPool));
+        } else if (renderExecutor != null) {
+            renderExecutor.execute(() -> monitoredRender.get().run());
+        } else {
+            monitoredRender.get().run();
+        }
+    }
+
+    /**
+     * Computes a render, replacing its output by a message if it was cancelled or failed. A failure
+     * only ends its own render, the renders and script steps after it still run.
+     *
+     * @param render        the render.
+     * @param renderMonitor the monitor of the render, removed from the active renders once it ends.
+     * @return the action that outputs the result of the render.
+     */
+    private Runnable runMonitoredRender(Supplier<Runnable> render, RenderMonitor renderMonitor) {
+        try {
+            renderMonitor.checkCancelled();
+            Runnable output = render.get();
+            return () -> runOutput(output);
+        } catch (RenderCancelledException e) {
+            return () -> System.out.println(MSG_RENDER_CANCELLED);
+        } catch (RuntimeException e) {
+            return () -> System.out.println(BEGIN_MSG_RENDER_FAILED + e.getMessage());
+        } finally {
+            activeRenders.remove(renderMonitor);
+        }
+    }
+
+    /**
+     * Performs the output of a render, printing a message instead if it fails.
+     *
+     * @param output the action that outputs the result of the render.
+     */
+    private static void runOutput(Runnable output) {
+        try {
+            output.run();
+        } catch (RuntimeException e) {
+            System.out.println(BEGIN_MSG_RENDER_FAILED + e.getMessage());
+        }
+    }
+
+    /**
+     * Cancels the running render and every queued one. Each of them stops at its next check and
+     * prints a message instead of its output.
+     */
+    private void cancelRenders() {
+        int cancelled = 0;
+        for (RenderMonitor renderMonitor : activeRenders) {
+            if (!renderMonitor.isCancelled()) {
+                renderMonitor.cancel();
+                cancelled++;
+            }
+        }
+        if (cancelled == 0) {
+            out.println(MSG_NO_RENDER_TO_CANCEL);
+            return;
+        }
+        out.println(BEGIN_MSG_CANCELLING_RENDERS + cancelled + END_MSG_CANCELLING_RENDERS);
+    }
+
+    /**
+     * Prints the progress of the running render, and how many renders are queued after it.
+     */
+    private void printRenderProgress() {
+        RenderMonitor renderMonitor = activeRenders.peek();
+        if (renderMonitor == null) {
+            out.println(MSG_NO_RENDER_RUNNING);
+            return;
+        }
+        String progress = BEGIN_MSG_RENDER_PROGRESS + renderMonitor.getDoneSteps()
+                + MIDDLE_MSG_RENDER_PROGRESS + renderMonitor.getTotalSteps() + END_MSG_RENDER_PROGRESS;
+        int queued = activeRenders.size() - 1;
+        if (queued > 0) {
+            progress += BEGIN_MSG_QUEUED_RENDERS + queued + END_MSG_QUEUED_RENDERS;
+        }
+        out.println(progress + END_MSG_PROGRESS);
+    }
+
+    /**
+     * Loads the image file the shell was started with again, as a raw image if it was given with
+     * dimensions.
+     *
+     * @return the loaded image.
+     * @throws IOException if there is an error loading the image.
+     */
+    private Image reloadImage() throws IOException {
+        if (rawWidth != NOT_RAW_IMAGE) {
+            return loadRawImage(imageName, rawWidth, rawHeight);
+        }
+        return loadImage(imageName);
+    }
+
+    /**
+     * Loads an image file. Binary PGM and PPM files are memory-mapped, any other file is decoded
+     * with ImageIO.
+     *
+     * @param imageName the name of the image file to load.
+     * @return the loaded image.
+     * @throws IOException if there is an error loading the image.
+     */
+    private static Image loadImage(String imageName) throws IOException {
+        String lowerCaseName = imageName.toLowerCase();
+        for (String suffix : PNM_SUFFIXES) {
+            if (lowerCaseName.endsWith(suffix)) {
+                return MappedImage.loadPnm(imageName);
+            }
+        }
+        return new Image(imageName);
+    }
+
+    /**
+     * Loads a headerless raw image file by memory-mapping it. Files ending with ".rgba" hold four
+     * samples per pixel, files ending with ".rgb" three, and any other file one gray sample per pixel.
+     *
+     * @param imageName the name of the image file to load.
+     * @param width     the width of the image.
+     * @param height    the height of the image.
+     * @return the loaded image.
+     * @throws IOException if there is an error loading the image.
+     */
+    private static Image loadRawImage(String imageName, int width, int height) throws IOException {
+        String lowerCaseName = imageName.toLowerCase();
+        int channels = MappedImage.GRAY_CHANNELS;
+        if (lowerCaseName.endsWith(RAW_RGBA_SUFFIX)) {
+            channels = MappedImage.RGBA_CHANNELS;
+        } else if (lowerCaseName.endsWith(RAW_RGB_SUFFIX)) {
+            channels = MappedImage.RGB_CHANNELS;
         }
+        return MappedImage.loadRaw(imageName, width, height, channels);
     }
 
     /**
@@ -128,7 +549,8 @@ public class Shell {
      * @param action the action indicating which output type to set.
      */
     private void updateOutputType(String action) {
-        if (action.equals(OUTPUT_TYPE_2) || action.equals(OUTPUT_TYPE_DEFAULT)) {
+        if (action.equals(OUTPUT_TYPE_2) || action.equals(OUTPUT_TYPE_3) || action.equals(OUTPUT_TYPE_4)
+                || action.equals(OUTPUT_TYPE_DEFAULT)) {
             this.outputType = action;
             return;
         }
@@ -139,24 +561,247 @@ public class Shell {
      * Prints the current character set.
      */
     private void printCharset() {
-        this.matcher.printHashMap();
+        out.println(this.matcher.getSnapshot());
     }
 
     /**
-     * Runs the ASCII art algorithm and outputs the result.
+     * Prepares a run of the ASCII art algorithm with the current settings.
+     *
+     * @param renderMonitor the monitor the run reports to.
+     * @return a render that runs the algorithm and returns the action that outputs the result.
      */
-    private void runAsciiArt() {
+    private Supplier<Runnable> prepareAsciiArt(RenderMonitor renderMonitor) {
         if (matcher.getNumberOfSet() < MIN_CHARS_IN_CHARSET) {
             throw new BadCommandExeption(MSG_INVALID_SET);
         }
+        AsciiArtAlgorithm asciiArtAlgorithm = createAsciiArtAlgorithm(renderMonitor);
+        String currentOutputType = this.outputType;
+        ShardCoordinator currentShardCoordinator = this.shardCoordinator;
+        return () -> {
+            char[][] asciiArt = currentShardCoordinator == null ? asciiArtAlgorithm.run()
+                    : asciiArtAlgorithm.runSharded(currentShardCoordinator);
+            return () -> outputAsciiArt(asciiArt, currentOutputType);
+        };
+    }
+
+    /**
+     * Creates the ASCII art algorithm for the current image, with the current resolution, dithering,
+     * contrast and edge mode.
+     *
+     * @param renderMonitor the monitor the runs of the algorithm report to.
+     * @return the configured algorithm.
+     */
+    private AsciiArtAlgorithm createAsciiArtAlgorithm(RenderMonitor renderMonitor) {
         AsciiArtAlgorithm asciiArtAlgorithm = new AsciiArtAlgorithm(this.matcher,
                 this.image, this.resolution);
-        char[][] asciiArt = asciiArtAlgorithm.run();
-        if (outputType.equals(OUTPUT_TYPE_DEFAULT)) {
-            console.out(asciiArt);
-            return;
+        asciiArtAlgorithm.setDitherType(this.ditherType);
+        asciiArtAlgorithm.setContrastType(this.contrastType);
+        asciiArtAlgorithm.setEdgeMode(this.edgeMode);
+        asciiArtAlgorithm.setRenderMonitor(renderMonitor);
+        return asciiArtAlgorithm;
+    }
+
+    /**
+     * Outputs ASCII art with the given output type.
+     *
+     * @param asciiArt   the ASCII art.
+     * @param outputType the output type.
+     */
+    private void outputAsciiArt(char[][] asciiArt, String outputType) {
+        switch (outputType) {
+            case OUTPUT_TYPE_2 -> htmlOutput.out(asciiArt);
+            case OUTPUT_TYPE_3 -> pngOutput.out(asciiArt);
+            case OUTPUT_TYPE_4 -> rleOutput.out(asciiArt);
+            default -> console.out(asciiArt);
+        }
+    }
+
+    /**
+     * Prepares the replay of ASCII art saved with the rle output type. The file is decoded into the
+     * current output type, the algorithm is not run again. It is only opened when the outputs of the
+     * earlier renders are done, so a file written by one of them can be viewed right after it.
+     *
+     * @param fileName the name of the run-length encoded file.
+     * @return a render that returns the action that outputs the saved ASCII art.
+     */
+    private Supplier<Runnable> prepareView(String fileName) {
+        if (fileName.isBlank()) {
+            throw new BadCommandExeption(MSG_INCORRECT_VIEW_COMMAND_FORMAT);
+        }
+        String currentOutputType = this.outputType;
+        return () -> () -> {
+            try (RleAsciiReader reader = new RleAsciiReader(fileName)) {
+                outputAsciiArt(reader.readAll(), currentOutputType);
+            } catch (IOException e) {
+                System.out.println(BEGIN_MSG_ERR_READING_FILE + e.getMessage());
+            }
+        };
+    }
+
+    /**
+     * Renders the image, then watches its file and renders it again every time it changes, until the
+     * user presses Enter. Bursts of writes to the file are debounced into a single render, and only the
+     * sub-images whose pixels changed are recalculated.
+     */
+    private void watchImage() {
+        if (imageName == null) {
+            throw new BadCommandExeption(MSG_NO_IMAGE_FILE_TO_WATCH);
+        }
+        if (matcher.getNumberOfSet() < MIN_CHARS_IN_CHARSET) {
+            throw new BadCommandExeption(MSG_INVALID_SET);
+        }
+        Path imagePath = Path.of(imageName).toAbsolutePath();
+        BlockBrightnessCache blockCache = new BlockBrightnessCache();
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            imagePath.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            out.println(BEGIN_MSG_WATCHING + imageName + END_MSG_WATCHING);
+            renderWatchedImage(blockCache);
+            while (!isStopRequested()) {
+                WatchKey key = watchService.poll(WATCH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key == null || !isImageChanged(key, imagePath)) {
+                    continue;
+                }
+
+                // Wait until the file is quiet, so a burst of writes causes a single render.
+                for (WatchKey next = watchService.poll(WATCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                     next != null; next = watchService.poll(WATCH_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) {
+                    next.pollEvents();
+                    next.reset();
+                }
+                try {
+                    this.image = reloadImage();
+                } catch (IOException e) {
+                    // The file may be half written, the next change will load it again.
+                    out.println(BEGIN_MSG_ERR_LOADING_IMAGE + e.getMessage());
+                    continue;
+                }
+                renderWatchedImage(blockCache);
+            }
+        } catch (IOException e) {
+            throw new BadCommandExeption(BEGIN_MSG_ERR_LOADING_IMAGE + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        htmlOutput.out(asciiArt);
+    }
+
+    /**
+     * Renders the current image with the brightness of the unchanged sub-images taken from the cache,
+     * or with the worker processes if they are set, through the same pipeline as the 'asciiArt' command.
+     * A memory-mapped image whose file is truncated while it is read fails the render with an
+     * {@link InternalError}; it is reported, and the next change of the file renders it again.
+     *
+     * @param blockCache the brightness of the sub-images of the previous version of the image.
+     */
+    private void renderWatchedImage(BlockBrightnessCache blockCache) {
+        RenderMonitor renderMonitor = new RenderMonitor();
+        AsciiArtAlgorithm asciiArtAlgorithm = createAsciiArtAlgorithm(renderMonitor);
+        String currentOutputType = this.outputType;
+        ShardCoordinator currentShardCoordinator = this.shardCoordinator;
+        int blocks = resolution * resolution;
+        activeRenders.add(renderMonitor);
+        try {
+            runMonitoredRender(() -> {
+                if (currentShardCoordinator != null) {
+                    char[][] asciiArt = asciiArtAlgorithm.runSharded(currentShardCoordinator);
+                    return () -> outputAsciiArt(asciiArt, currentOutputType);
+                }
+                char[][] asciiArt = asciiArtAlgorithm.runWithBlockCache(blockCache);
+                int changedBlocks = blockCache.getChangedBlocks();
+                return () -> {
+                    outputAsciiArt(asciiArt, currentOutputType);
+                    out.println(BEGIN_MSG_WATCH_RENDERED + changedBlocks + MIDDLE_MSG_WATCH_RENDERED
+                            + blocks + END_MSG_WATCH_RENDERED);
+                };
+            }, renderMonitor).run();
+        } catch (InternalError e) {
+            out.println(BEGIN_MSG_ERR_LOADING_IMAGE + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether the events of a watch key include a change of the image file, and resets the key.
+     *
+     * @param key       the signalled watch key of the directory of the image.
+     * @param imagePath the absolute path of the image file.
+     * @return true if the image file was created or modified.
+     */
+    private static boolean isImageChanged(WatchKey key, Path imagePath) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (imagePath.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    /**
+     * Checks without blocking whether the user entered a line, and consumes it if so. The exit command
+     * is left in the input, so the shell stops after the watch.
+     *
+     * @return true if the user asked to stop.
+     */
+    private boolean isStopRequested() {
+        String line = inputLines.peek();
+        if (line == null) {
+            return false;
+        }
+        if (!line.equals(VALUE_TO_STOP_RUNNING_PROGRAM)) {
+            inputLines.poll();
+        }
+        return true;
+    }
+
+    /**
+     * Prepares a run of the ASCII art algorithm for every power-of-two resolution inside the resolution
+     * boundaries. Console output is preceded by the resolution of every level, html, png and rle output
+     * is written to a separate file for every level.
+     *
+     * @param renderMonitor the monitor the sweep reports to.
+     * @return a render that runs the sweep and returns the action that outputs every level.
+     */
+    private Supplier<Runnable> prepareSweep(RenderMonitor renderMonitor) {
+        if (matcher.getNumberOfSet() < MIN_CHARS_IN_CHARSET) {
+            throw new BadCommandExeption(MSG_INVALID_SET);
+        }
+        int maxCharsInRow = Math.min(image.getWidth(), Math.min(Image.nextPowerOfTwo(image.getWidth()),
+                Image.nextPowerOfTwo(image.getHeight())));
+        int minCharsInRow = Math.max(MIN_CHARS_IN_ROW, image.getWidth() / image.getHeight());
+        int finestResolution = Integer.highestOneBit(maxCharsInRow);
+        int coarsestResolution = Image.nextPowerOfTwo(minCharsInRow);
+        if (coarsestResolution > finestResolution) {
+            throw new BadCommandExeption(MSG_INCORRECT_BOUNDARIES_SWEEP_COMMAND_FORMAT);
+        }
+        AsciiArtAlgorithm asciiArtAlgorithm = new AsciiArtAlgorithm(this.matcher,
+                this.image, finestResolution);
+        asciiArtAlgorithm.setDitherType(this.ditherType);
+        asciiArtAlgorithm.setContrastType(this.contrastType);
+        asciiArtAlgorithm.setEdgeMode(this.edgeMode);
+        asciiArtAlgorithm.setRenderMonitor(renderMonitor);
+        String currentOutputType = this.outputType;
+        return () -> {
+            SortedMap<Integer, char[][]> levels = asciiArtAlgorithm.runSweep(coarsestResolution);
+            return () -> {
+                for (Map.Entry<Integer, char[][]> level : levels.entrySet()) {
+                    String levelFileName = SWEEP_FILE_PREFIX + level.getKey();
+                    switch (currentOutputType) {
+                        case OUTPUT_TYPE_2 -> new HtmlAsciiOutput(levelFileName + HTML_FILE_SUFFIX,
+                                OUTPUT_WRITE_STYLE_HTML_FILE_DEFAULT).out(level.getValue());
+                        case OUTPUT_TYPE_3 -> new PngAsciiOutput(levelFileName + PNG_FILE_SUFFIX,
+                                OUTPUT_WRITE_STYLE_HTML_FILE_DEFAULT).out(level.getValue());
+                        case OUTPUT_TYPE_4 -> new RleAsciiOutput(levelFileName + RLE_FILE_SUFFIX,
+                                true).out(level.getValue());
+                        default -> {
+                            System.out.println(BEGIN_MSG_SWEEP_RESOLUTION + level.getKey()
+                                    + END_MSG_SWEEP_RESOLUTION);
+                            console.out(level.getValue());
+                        }
+                    }
+                }
+            };
+        };
     }
 
     /**
@@ -241,15 +886,15 @@ public class Shell {
         int maxCharsInRow = image.getWidth();
         double minCharsInRow = Math.max(MIN_CHARS_IN_ROW, image.getWidth() / image.getHeight());
         if (action.isEmpty()) {
-            System.out.println(MSG_CHANGE_RESOLUTION_SET + resolution + END_MSG_CHANGE_RESOLUTION_SET);
+            out.println(MSG_CHANGE_RESOLUTION_SET + resolution + END_MSG_CHANGE_RESOLUTION_SET);
         } else if (action.equals(VALUE_TO_IMPROVE_RESOLUTION) &&
                 resolution * COUNT_OF_UPDATE_RESOLUTION <= maxCharsInRow) {
             resolution *= COUNT_OF_UPDATE_RESOLUTION;
-            System.out.println(MSG_CHANGE_RESOLUTION_SET + resolution + END_MSG_CHANGE_RESOLUTION_SET);
+            out.println(MSG_CHANGE_RESOLUTION_SET + resolution + END_MSG_CHANGE_RESOLUTION_SET);
         } else if (action.equals(VALUE_TO_DECREASE_RESOLUTION) && (double)
                 resolution / COUNT_OF_UPDATE_RESOLUTION >= minCharsInRow) {
             resolution /= COUNT_OF_UPDATE_RESOLUTION;
-            System.out.println(MSG_CHANGE_RESOLUTION_SET + resolution + END_MSG_CHANGE_RESOLUTION_SET);
+            out.println(MSG_CHANGE_RESOLUTION_SET + resolution + END_MSG_CHANGE_RESOLUTION_SET);
         } else if (action.equals(VALUE_TO_DECREASE_RESOLUTION) ||
                 action.equals(VALUE_TO_IMPROVE_RESOLUTION)) {
             throw new BadCommandExeption(MSG_INCORRECT_BOUNDARIES_RESOLUTION_COMMAND_FORMAT);
@@ -281,19 +926,135 @@ public class Shell {
         throw new BadCommandExeption(MSG_INCORRECT_ROUNDING_COMMAND_FORMAT);
     }
 
+    /**
+     * Changes the dithering method used when mapping brightness to characters.
+     *
+     * @param action the action indicating which dithering method to set.
+     */
+    private void updateDitherType(String action) {
+        switch (action) {
+            case ErrorDiffusionDitherer.DITHER_TYPE_DEFAULT,
+                    ErrorDiffusionDitherer.DITHER_TYPE_FLOYD_STEINBERG,
+                    ErrorDiffusionDitherer.DITHER_TYPE_ATKINSON -> {
+                this.ditherType = action;
+                return;
+            }
+        }
+        throw new BadCommandExeption(MSG_INCORRECT_DITHER_COMMAND_FORMAT);
+    }
+
+    /**
+     * Changes the contrast method applied to the brightness of the sub-images before mapping.
+     *
+     * @param action the action indicating which contrast method to set.
+     */
+    private void updateContrastType(String action) {
+        switch (action) {
+            case ContrastEnhancer.CONTRAST_TYPE_DEFAULT,
+                    ContrastEnhancer.CONTRAST_TYPE_STRETCH,
+                    ContrastEnhancer.CONTRAST_TYPE_EQUALIZE -> {
+                this.contrastType = action;
+                return;
+            }
+        }
+        throw new BadCommandExeption(MSG_INCORRECT_CONTRAST_COMMAND_FORMAT);
+    }
+
+    /**
+     * Turns the directional characters for sub-images with a dominant edge on or off.
+     *
+     * @param action the action indicating whether to turn the edge mode on or off.
+     */
+    private void updateEdgeMode(String action) {
+        switch (action) {
+            case EDGE_MODE_ON -> {
+                this.edgeMode = true;
+                return;
+            }
+            case EDGE_MODE_OFF -> {
+                this.edgeMode = false;
+                return;
+            }
+        }
+        throw new BadCommandExeption(MSG_INCORRECT_EDGE_MODE_COMMAND_FORMAT);
+    }
+
+    /**
+     * Changes the number of worker processes that calculate the brightness of the sub-images, 0 to
+     * calculate it in this process.
+     *
+     * @param action the number of worker processes.
+     */
+    private void updateShards(String action) {
+        int workerCount;
+        try {
+            workerCount = Integer.parseInt(action);
+        } catch (NumberFormatException e) {
+            throw new BadCommandExeption(MSG_INCORRECT_SHARDS_COMMAND_FORMAT);
+        }
+        if (workerCount < NO_SHARDS || workerCount > MAX_SHARDS) {
+            throw new BadCommandExeption(MSG_INCORRECT_SHARDS_COMMAND_FORMAT);
+        }
+        closeShardCoordinator();
+        if (workerCount != NO_SHARDS) {
+            shardCoordinator = new ShardCoordinator(workerCount);
+        }
+        out.println(BEGIN_MSG_SHARDS_SET + workerCount + END_MSG_SHARDS_SET);
+    }
+
+    /**
+     * Stops the worker processes, if there are any. Interactively they are stopped on the render
+     * thread, after the renders that were queued with them.
+     */
+    private void closeShardCoordinator() {
+        if (shardCoordinator == null) {
+            return;
+        }
+        ShardCoordinator closedShardCoordinator = shardCoordinator;
+        shardCoordinator = null;
+        if (renderExecutor != null) {
+            renderExecutor.execute(closedShardCoordinator::close);
+            return;
+        }
+        closedShardCoordinator.close();
+    }
+
     /**
      * The main entry point for running the shell application.
      *
-     * @param args command-line arguments, including the image file name.
+     * @param args command-line arguments, including the image file name, followed by the width and
+     *             height for a headerless raw image, optionally followed by "--script" and the name of
+     *             a script file, or "-" to read the script from the standard input.
      */
     public static void main(String[] args) {
         try {
-            if (args.length != CORRECT_NUMBER_OF_ARG) {
+            int imageArgsCount = args.length;
+            String scriptName = null;
+            if (args.length >= SCRIPT_NUMBER_OF_ARG
+                    && args[args.length - SCRIPT_NUMBER_OF_ARG].equals(SCRIPT_FLAG)) {
+                scriptName = args[args.length - 1];
+                imageArgsCount -= SCRIPT_NUMBER_OF_ARG;
+            }
+            if (imageArgsCount != CORRECT_NUMBER_OF_ARG && imageArgsCount != RAW_IMAGE_NUMBER_OF_ARG) {
                 return;
             }
             Shell shell = new Shell();
-            shell.run(args[IMG_ARG_INDEX]);
-        } catch (IOException e) {
+            shell.imageName = args[IMG_ARG_INDEX];
+            if (imageArgsCount == RAW_IMAGE_NUMBER_OF_ARG) {
+                shell.rawWidth = Integer.parseInt(args[WIDTH_ARG_INDEX]);
+                shell.rawHeight = Integer.parseInt(args[HEIGHT_ARG_INDEX]);
+            }
+            Image image = shell.reloadImage();
+            if (scriptName == null) {
+                shell.run(image);
+                return;
+            }
+            try (BufferedReader script = scriptName.equals(SCRIPT_FROM_STANDARD_INPUT)
+                    ? new BufferedReader(new InputStreamReader(System.in))
+                    : Files.newBufferedReader(Path.of(scriptName))) {
+                shell.runScript(image, script);
+            }
+        } catch (IOException | NumberFormatException e) {
             System.out.println(BEGIN_MSG_ERR_LOADING_IMAGE + e.getMessage());
         }
     }
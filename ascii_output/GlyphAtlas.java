@@ -0,0 +1,108 @@
+package ascii_output;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The GlyphAtlas class holds pre-rendered tiles of the characters of one font and size, black on
+ * white, as rows of RGB pixels. Every character is drawn with the font only once; afterwards a tile
+ * is copied as it is into the destination image. Atlases are cached per font and size.
+ */
+class GlyphAtlas {
+
+    private static final Map<String, GlyphAtlas> ATLASES = new ConcurrentHashMap<>();
+    private static final String KEY_SEPARATOR = "/";
+    private static final char FIRST_PRINTABLE_CHAR = 32;
+    private static final char LAST_PRINTABLE_CHAR = 126;
+    private static final char WIDTH_REFERENCE_CHAR = 'M';
+
+    private final Font font;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final int ascent;
+    private final Map<Character, int[]> tiles;
+
+    /**
+     * Constructor for creating the atlas of a font, rendering all printable ASCII characters.
+     *
+     * @param fontName the name of the font, a monospaced font keeps every character in its cell.
+     * @param fontSize the size of the font in points.
+     */
+    private GlyphAtlas(String fontName, int fontSize) {
+        font = new Font(fontName, Font.PLAIN, fontSize);
+        Graphics2D graphics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+        FontMetrics metrics = graphics.getFontMetrics(font);
+        graphics.dispose();
+        cellWidth = metrics.charWidth(WIDTH_REFERENCE_CHAR);
+        cellHeight = metrics.getHeight();
+        ascent = metrics.getAscent();
+        tiles = new ConcurrentHashMap<>();
+        for (char c = FIRST_PRINTABLE_CHAR; c <= LAST_PRINTABLE_CHAR; c++) {
+            tiles.put(c, renderTile(c));
+        }
+    }
+
+    /**
+     * Returns the cached atlas of a font and size, creating it on first use.
+     *
+     * @param fontName the name of the font.
+     * @param fontSize the size of the font in points.
+     * @return the atlas.
+     */
+    static GlyphAtlas get(String fontName, int fontSize) {
+        return ATLASES.computeIfAbsent(fontName + KEY_SEPARATOR + fontSize,
+                key -> new GlyphAtlas(fontName, fontSize));
+    }
+
+    /**
+     * Gets the width of a character cell in pixels.
+     *
+     * @return the width of a cell.
+     */
+    int getCellWidth() {
+        return cellWidth;
+    }
+
+    /**
+     * Gets the height of a character cell in pixels.
+     *
+     * @return the height of a cell.
+     */
+    int getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * Returns the tile of a character, rendering it first if it is not a printable ASCII character.
+     *
+     * @param c the character.
+     * @return the RGB pixels of the tile, row by row, cell width pixels per row.
+     */
+    int[] getTile(char c) {
+        int[] tile = tiles.get(c);
+        return tile != null ? tile : tiles.computeIfAbsent(c, this::renderTile);
+    }
+
+    /**
+     * Draws a single character into a new tile.
+     *
+     * @param c the character.
+     * @return the RGB pixels of the tile, row by row.
+     */
+    private int[] renderTile(char c) {
+        BufferedImage tile = new BufferedImage(cellWidth, cellHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = tile.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, cellWidth, cellHeight);
+        graphics.setColor(Color.BLACK);
+        graphics.setFont(font);
+        graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING,
+                RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        graphics.drawString(Character.toString(c), 0, ascent);
+        graphics.dispose();
+        return ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,97 @@
+package ascii_output;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.File;
+import java.io.IOException;
+import java.util.stream.IntStream;
+
+/**
+ * The PngAsciiOutput class writes ASCII art to a PNG image, black characters on a white background.
+ * <p>
+ * The characters are not drawn one by one with the font. Every character is rendered once into a
+ * cached {@link GlyphAtlas}, and the image is assembled by copying the rows of the tiles straight
+ * into the pixel array of the destination image. Bands of character rows are assembled in parallel,
+ * every band writing only its own pixel rows.
+ * </p>
+ */
+public class PngAsciiOutput implements AsciiOutput {
+
+    private static final String IMAGE_FORMAT = "png";
+    private static final int DEFAULT_FONT_SIZE = 12;
+    private static final int ROWS_PER_BAND = 8;
+
+    private final String fileName;
+    private final String fontName;
+    private final int fontSize;
+
+    /**
+     * Constructor for creating a PNG output with the default font size.
+     *
+     * @param fileName the name of the PNG file to write.
+     * @param fontName the name of the font to draw the characters with.
+     */
+    public PngAsciiOutput(String fileName, String fontName) {
+        this(fileName, fontName, DEFAULT_FONT_SIZE);
+    }
+
+    /**
+     * Constructor for creating a PNG output.
+     *
+     * @param fileName the name of the PNG file to write.
+     * @param fontName the name of the font to draw the characters with.
+     * @param fontSize the size of the font in points.
+     */
+    public PngAsciiOutput(String fileName, String fontName, int fontSize) {
+        this.fileName = fileName;
+        this.fontName = fontName;
+        this.fontSize = fontSize;
+    }
+
+    /**
+     * Writes the ASCII art to the PNG file.
+     *
+     * @param chars the ASCII art, row by row.
+     */
+    @Override
+    public void out(char[][] chars) {
+        try {
+            ImageIO.write(render(chars), IMAGE_FORMAT, new File(fileName));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Assembles the image of the ASCII art from the tiles of the glyph atlas.
+     *
+     * @param chars the ASCII art, row by row.
+     * @return the image.
+     */
+    private BufferedImage render(char[][] chars) {
+        GlyphAtlas atlas = GlyphAtlas.get(fontName, fontSize);
+        int cellWidth = atlas.getCellWidth();
+        int cellHeight = atlas.getCellHeight();
+        int columns = chars.length == 0 ? 0 : chars[0].length;
+        int width = Math.max(1, columns * cellWidth);
+        int height = Math.max(1, chars.length * cellHeight);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+
+        int bands = (chars.length + ROWS_PER_BAND - 1) / ROWS_PER_BAND;
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int endRow = Math.min(chars.length, (band + 1) * ROWS_PER_BAND);
+            for (int row = band * ROWS_PER_BAND; row < endRow; row++) {
+                for (int tileRow = 0; tileRow < cellHeight; tileRow++) {
+                    int destination = (row * cellHeight + tileRow) * width;
+                    for (int column = 0; column < columns; column++) {
+                        System.arraycopy(atlas.getTile(chars[row][column]), tileRow * cellWidth,
+                                pixels, destination + column * cellWidth, cellWidth);
+                    }
+                }
+            }
+        });
+        return image;
+    }
+}
@@ -0,0 +1,154 @@
+package ascii_output;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+
+/**
+ * The RleAsciiOutput class writes ASCII art to a compact binary file: every row is stored as runs of
+ * equal characters, and the rows can optionally be compressed in blocks. The format is described in
+ * {@link RleFormat}, and files are read back by {@link RleAsciiReader}.
+ */
+public class RleAsciiOutput implements AsciiOutput {
+
+    private final String fileName;
+    private final boolean compressed;
+
+    /**
+     * Constructor for creating a run-length encoded output.
+     *
+     * @param fileName   the name of the file to write.
+     * @param compressed whether to compress the rows in blocks.
+     */
+    public RleAsciiOutput(String fileName, boolean compressed) {
+        this.fileName = fileName;
+        this.compressed = compressed;
+    }
+
+    /**
+     * Writes the ASCII art to the file.
+     *
+     * @param chars the ASCII art, row by row.
+     */
+    @Override
+    public void out(char[][] chars) {
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(fileName)))) {
+            write(output, chars);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Writes the header and the rows.
+     *
+     * @param output the output to write to.
+     * @param chars  the ASCII art, row by row.
+     * @throws IOException if the output cannot be written.
+     */
+    private void write(DataOutputStream output, char[][] chars) throws IOException {
+        int columns = chars.length == 0 ? 0 : chars[0].length;
+        Map<Character, Integer> charIndexes = indexCharset(chars);
+
+        output.write(RleFormat.MAGIC);
+        output.writeByte(RleFormat.VERSION);
+        output.writeByte(compressed ? RleFormat.FLAG_COMPRESSED : 0);
+        output.writeInt(chars.length);
+        output.writeInt(columns);
+        RleFormat.writeVarInt(output, charIndexes.size());
+        for (char c : charIndexes.keySet()) {
+            RleFormat.writeVarInt(output, c);
+        }
+
+        if (!compressed) {
+            for (char[] row : chars) {
+                writeRow(output, row, charIndexes);
+            }
+            return;
+        }
+        for (int firstRow = 0; firstRow < chars.length; firstRow += RleFormat.ROWS_PER_BLOCK) {
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            DataOutputStream blockOutput = new DataOutputStream(block);
+            int endRow = Math.min(chars.length, firstRow + RleFormat.ROWS_PER_BLOCK);
+            for (int row = firstRow; row < endRow; row++) {
+                writeRow(blockOutput, chars[row], charIndexes);
+            }
+            writeCompressedBlock(output, block.toByteArray());
+        }
+    }
+
+    /**
+     * Writes one row as its number of runs followed by the length and character index of every run.
+     *
+     * @param output      the output to write to.
+     * @param row         the characters of the row.
+     * @param charIndexes the index of every character in the charset.
+     * @throws IOException if the output cannot be written.
+     */
+    private static void writeRow(DataOutputStream output, char[] row, Map<Character, Integer> charIndexes)
+            throws IOException {
+        int runs = 0;
+        for (int i = 0; i < row.length; i++) {
+            if (i == 0 || row[i] != row[i - 1]) {
+                runs++;
+            }
+        }
+        RleFormat.writeVarInt(output, runs);
+        int runStart = 0;
+        for (int i = 1; i <= row.length; i++) {
+            if (i == row.length || row[i] != row[runStart]) {
+                RleFormat.writeVarInt(output, i - runStart);
+                RleFormat.writeVarInt(output, charIndexes.get(row[runStart]));
+                runStart = i;
+            }
+        }
+    }
+
+    /**
+     * Deflates one block of encoded rows and writes it with its lengths.
+     *
+     * @param output the output to write to.
+     * @param block  the encoded rows of the block.
+     * @throws IOException if the output cannot be written.
+     */
+    private static void writeCompressedBlock(DataOutputStream output, byte[] block) throws IOException {
+        Deflater deflater = new Deflater();
+        deflater.setInput(block);
+        deflater.finish();
+        ByteArrayOutputStream compressedBlock = new ByteArrayOutputStream();
+        byte[] buffer = new byte[block.length + 1];
+        while (!deflater.finished()) {
+            compressedBlock.write(buffer, 0, deflater.deflate(buffer));
+        }
+        deflater.end();
+        output.writeInt(compressedBlock.size());
+        output.writeInt(block.length);
+        compressedBlock.writeTo(output);
+    }
+
+    /**
+     * Collects the distinct characters of the ASCII art, sorted, and gives each one an index.
+     *
+     * @param chars the ASCII art, row by row.
+     * @return the index of every character, in the order of the indexes.
+     */
+    private static Map<Character, Integer> indexCharset(char[][] chars) {
+        Map<Character, Integer> charIndexes = new TreeMap<>();
+        for (char[] row : chars) {
+            for (char c : row) {
+                charIndexes.put(c, 0);
+            }
+        }
+        int index = 0;
+        for (Map.Entry<Character, Integer> entry : charIndexes.entrySet()) {
+            entry.setValue(index++);
+        }
+        return charIndexes;
+    }
+}
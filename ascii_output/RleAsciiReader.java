@@ -0,0 +1,219 @@
+package ascii_output;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The RleAsciiReader class reads a file written by {@link RleAsciiOutput} back as ASCII art, without
+ * running the algorithm again.
+ * <p>
+ * The header is read when the reader is opened. The rows are then decoded one at a time with
+ * {@link #readRow()}, and a compressed file is inflated one block at a time, so only the current
+ * block is ever held in memory. {@link #copyTo(AsciiOutput)} feeds the remaining rows to any output.
+ * </p>
+ */
+public class RleAsciiReader implements AutoCloseable {
+
+    private static final String MSG_NOT_RLE_FILE = "Not a run-length encoded ASCII art file: ";
+    private static final String MSG_UNSUPPORTED_VERSION = "Unsupported file version: ";
+    private static final String MSG_CORRUPT_FILE = "Corrupt run-length encoded ASCII art file: ";
+    private static final String MSG_FILE_TOO_LARGE = "ASCII art is too large to read: ";
+
+    private final String fileName;
+    private final DataInputStream input;
+    private final boolean compressed;
+    private final int rows;
+    private final int columns;
+    private final char[] charset;
+    private DataInputStream block;
+    private int rowsRead;
+
+    /**
+     * Constructor for opening a file and reading its header.
+     *
+     * @param fileName the name of the file to read.
+     * @throws IOException if the file cannot be read, is not a supported run-length encoded file, or its
+     *                     ASCII art has more than {@link RleFormat#MAX_CELLS} cells.
+     */
+    public RleAsciiReader(String fileName) throws IOException {
+        this.fileName = fileName;
+        this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+        try {
+            byte[] magic = new byte[RleFormat.MAGIC.length];
+            input.readFully(magic);
+            if (!Arrays.equals(magic, RleFormat.MAGIC)) {
+                throw new IOException(MSG_NOT_RLE_FILE + fileName);
+            }
+            int version = input.readUnsignedByte();
+            if (version != RleFormat.VERSION) {
+                throw new IOException(MSG_UNSUPPORTED_VERSION + version);
+            }
+            int flags = input.readUnsignedByte();
+            if ((flags & ~RleFormat.FLAG_COMPRESSED) != 0) {
+                throw new IOException(MSG_CORRUPT_FILE + fileName);
+            }
+            compressed = (flags & RleFormat.FLAG_COMPRESSED) != 0;
+            rows = input.readInt();
+            columns = input.readInt();
+            if (rows < 0 || columns < 0) {
+                throw new IOException(MSG_CORRUPT_FILE + fileName);
+            }
+
+            // Check the sizes before allocating, a corrupt header must not exhaust the memory.
+            long cells = (long) rows * columns;
+            if (cells > RleFormat.MAX_CELLS) {
+                throw new IOException(MSG_FILE_TOO_LARGE + fileName);
+            }
+            int charsetSize = RleFormat.readVarInt(input);
+            if (charsetSize > Math.min(cells, RleFormat.MAX_CHARSET_SIZE)) {
+                throw new IOException(MSG_CORRUPT_FILE + fileName);
+            }
+            charset = new char[charsetSize];
+            for (int i = 0; i < charset.length; i++) {
+                int c = RleFormat.readVarInt(input);
+                if (c > Character.MAX_VALUE) {
+                    throw new IOException(MSG_CORRUPT_FILE + fileName);
+                }
+                charset[i] = (char) c;
+            }
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of rows of the ASCII art.
+     *
+     * @return the number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the number of columns of the ASCII art.
+     *
+     * @return the number of columns.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gets the distinct characters of the ASCII art.
+     *
+     * @return a copy of the charset, sorted.
+     */
+    public char[] getCharset() {
+        return charset.clone();
+    }
+
+    /**
+     * Reads and decodes the next row.
+     *
+     * @return the characters of the row, or null if all the rows were read.
+     * @throws IOException if the file cannot be read or is corrupt.
+     */
+    public char[] readRow() throws IOException {
+        if (rowsRead == rows) {
+            return null;
+        }
+        DataInputStream rowInput = input;
+        if (compressed) {
+            if (rowsRead % RleFormat.ROWS_PER_BLOCK == 0) {
+                block = readCompressedBlock();
+            }
+            rowInput = block;
+        }
+        char[] row = new char[columns];
+        int runs = RleFormat.readVarInt(rowInput);
+        int column = 0;
+        for (int run = 0; run < runs; run++) {
+            int length = RleFormat.readVarInt(rowInput);
+            int charIndex = RleFormat.readVarInt(rowInput);
+            if (charIndex >= charset.length || length > columns - column) {
+                throw new IOException(MSG_CORRUPT_FILE + fileName);
+            }
+            Arrays.fill(row, column, column + length, charset[charIndex]);
+            column += length;
+        }
+        if (column != columns) {
+            throw new IOException(MSG_CORRUPT_FILE + fileName);
+        }
+        rowsRead++;
+        return row;
+    }
+
+    /**
+     * Reads all the remaining rows.
+     *
+     * @return the remaining rows of the ASCII art.
+     * @throws IOException if the file cannot be read or is corrupt.
+     */
+    public char[][] readAll() throws IOException {
+        char[][] chars = new char[rows - rowsRead][];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = readRow();
+        }
+        return chars;
+    }
+
+    /**
+     * Reads all the remaining rows and writes them to an output.
+     *
+     * @param output the output to write the ASCII art to.
+     * @throws IOException if the file cannot be read or is corrupt.
+     */
+    public void copyTo(AsciiOutput output) throws IOException {
+        output.out(readAll());
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * Reads and inflates the next block of rows.
+     *
+     * @return a stream over the encoded rows of the block.
+     * @throws IOException if the file cannot be read or the block is corrupt.
+     */
+    private DataInputStream readCompressedBlock() throws IOException {
+        int compressedLength = input.readInt();
+        int length = input.readInt();
+        int blockRows = Math.min(RleFormat.ROWS_PER_BLOCK, rows - rowsRead);
+        if (compressedLength < 0 || length < 0
+                || length > blockRows * RleFormat.maxEncodedRowLength(columns)
+                || compressedLength > RleFormat.maxCompressedLength(length)) {
+            throw new IOException(MSG_CORRUPT_FILE + fileName);
+        }
+        byte[] compressedBlock = new byte[compressedLength];
+        input.readFully(compressedBlock);
+        byte[] decodedBlock = new byte[length];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressedBlock);
+            if (inflater.inflate(decodedBlock) != length || !inflater.finished()) {
+                throw new IOException(MSG_CORRUPT_FILE + fileName);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(MSG_CORRUPT_FILE + fileName, e);
+        } finally {
+            inflater.end();
+        }
+        return new DataInputStream(new ByteArrayInputStream(decodedBlock));
+    }
+}
@@ -0,0 +1,102 @@
+package ascii_output;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The RleFormat class holds the constants and the variable-length integer encoding shared by
+ * {@link RleAsciiOutput} and {@link RleAsciiReader}.
+ * <p>
+ * A file starts with a header: the magic bytes "ASCR", a version byte, a flags byte, the number of
+ * rows and columns as 32-bit integers and the charset (its size, then every character). Then every
+ * row follows as the number of its runs and, for every run, its length and the index of its character
+ * in the charset. All counts, lengths and indexes are unsigned LEB128 variable-length integers.
+ * </p>
+ * <p>
+ * If the compression flag is set, the rows are grouped into blocks of {@link #ROWS_PER_BLOCK} rows,
+ * and every block is stored as its compressed length, its uncompressed length and its Deflate data,
+ * so a reader only ever inflates one block at a time.
+ * </p>
+ */
+final class RleFormat {
+
+    static final byte[] MAGIC = {'A', 'S', 'C', 'R'};
+    static final int VERSION = 1;
+    static final int FLAG_COMPRESSED = 1 << 1;
+    static final int ROWS_PER_BLOCK = 64;
+    static final int MAX_CELLS = 1 << 26;
+    static final int MAX_CHARSET_SIZE = Character.MAX_VALUE + 1;
+
+    private static final int VARINT_PAYLOAD_BITS = 7;
+    private static final int VARINT_PAYLOAD_MASK = 0x7F;
+    private static final int VARINT_CONTINUATION = 0x80;
+    private static final int MAX_VARINT_SHIFT = 28;
+    private static final int MAX_VARINT_BYTES = MAX_VARINT_SHIFT / VARINT_PAYLOAD_BITS + 1;
+    private static final int RUN_VARINTS = 2;
+    private static final int DEFLATE_EXPANSION_DIVISOR = 8;
+    private static final int DEFLATE_MAX_OVERHEAD = 64;
+    private static final String MSG_BAD_VARINT = "Malformed variable-length integer";
+
+    private RleFormat() {
+    }
+
+    /**
+     * Writes a non-negative integer as an unsigned LEB128 variable-length integer.
+     *
+     * @param output the output to write to.
+     * @param value  the non-negative integer.
+     * @throws IOException if the output cannot be written.
+     */
+    static void writeVarInt(DataOutput output, int value) throws IOException {
+        while ((value & ~VARINT_PAYLOAD_MASK) != 0) {
+            output.writeByte((value & VARINT_PAYLOAD_MASK) | VARINT_CONTINUATION);
+            value >>>= VARINT_PAYLOAD_BITS;
+        }
+        output.writeByte(value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 variable-length integer.
+     *
+     * @param input the input to read from.
+     * @return the non-negative integer.
+     * @throws IOException if the input cannot be read or the integer is malformed.
+     */
+    static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift <= MAX_VARINT_SHIFT; shift += VARINT_PAYLOAD_BITS) {
+            int b = input.readUnsignedByte();
+            value |= (b & VARINT_PAYLOAD_MASK) << shift;
+            if ((b & VARINT_CONTINUATION) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException(MSG_BAD_VARINT);
+    }
+
+    /**
+     * Gets the largest number of bytes an encoded row can take: its number of runs and, at most one
+     * run per column, the length and character index of every run.
+     *
+     * @param columns the number of columns of the ASCII art.
+     * @return the largest encoded length of a row.
+     */
+    static long maxEncodedRowLength(int columns) {
+        return MAX_VARINT_BYTES * (1 + RUN_VARINTS * (long) columns);
+    }
+
+    /**
+     * Gets the largest number of bytes Deflate can take to compress data of the given length, with a
+     * generous margin over the few bytes per stored block it adds to incompressible data.
+     *
+     * @param length the uncompressed length.
+     * @return the largest compressed length.
+     */
+    static long maxCompressedLength(long length) {
+        return length + length / DEFLATE_EXPANSION_DIVISOR + DEFLATE_MAX_OVERHEAD;
+    }
+}
@@ -0,0 +1,16 @@
+package exceptions;
+
+/**
+ * RenderCancelledException is a runtime exception thrown from inside a render
+ * of the ASCII art algorithm when the user cancelled it.
+ */
+public class RenderCancelledException extends RuntimeException {
+    /**
+     * Constructs a RenderCancelledException with an error message.
+     *
+     * @param message the message to display.
+     */
+    public RenderCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,103 @@
+package image;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * The BlockBrightnessCache class keeps the brightness of every block of the last image it was given,
+ * together with a hash of the pixels of every block.
+ * <p>
+ * When a new version of the image is given, the pixels of every block are hashed again and the
+ * brightness is recalculated only for the blocks whose hash has changed. Rows of blocks are processed
+ * in parallel.
+ * </p>
+ */
+public class BlockBrightnessCache {
+
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+    private static final int MIX_SHIFT = 29;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int[] RGB_BYTE_SHIFTS = {16, 8, 0};
+
+    private int resolution;
+    private int width;
+    private int height;
+    private long[][] blockHashes;
+    private double[][] brightnessGrid;
+    private int changedBlocks;
+
+    /**
+     * Calculates the brightness grid of a new version of the image, reusing the brightness of every
+     * block whose pixels did not change since the last call. Every block is recalculated if the
+     * resolution or the dimensions of the image changed.
+     *
+     * @param paddedImage an image whose width and height are powers of two.
+     * @param resolution  the number of divisions along the width and height.
+     * @return the brightness grid, as {@link Image#calculateBlockBrightness(int, int, int)} of every
+     * block. The returned array is reused by the next call.
+     */
+    public double[][] update(Image paddedImage, int resolution) {
+        if (blockHashes == null || this.resolution != resolution
+                || width != paddedImage.getWidth() || height != paddedImage.getHeight()) {
+            this.resolution = resolution;
+            this.width = paddedImage.getWidth();
+            this.height = paddedImage.getHeight();
+            this.blockHashes = new long[resolution][resolution];
+            this.brightnessGrid = new double[resolution][resolution];
+            for (double[] row : brightnessGrid) {
+                Arrays.fill(row, Double.NaN);
+            }
+        }
+
+        AtomicInteger changed = new AtomicInteger();
+        IntStream.range(0, resolution).parallel().forEach(row -> {
+            for (int column = 0; column < resolution; column++) {
+                long hash = hashBlock(paddedImage, row, column);
+                if (hash != blockHashes[row][column] || Double.isNaN(brightnessGrid[row][column])) {
+                    // The hash is stored last, so a block whose calculation failed is calculated again.
+                    brightnessGrid[row][column]
+                            = paddedImage.calculateBlockBrightness(resolution, row, column);
+                    blockHashes[row][column] = hash;
+                    changed.incrementAndGet();
+                }
+            }
+        });
+        changedBlocks = changed.get();
+        return brightnessGrid;
+    }
+
+    /**
+     * Gets the number of blocks that were recalculated by the last update.
+     *
+     * @return the number of changed blocks.
+     */
+    public int getChangedBlocks() {
+        return changedBlocks;
+    }
+
+    /**
+     * Hashes the red, green and blue bytes of the pixels of one block with 64-bit FNV-1a, mixed at the
+     * end. The packed RGB value of every pixel is read, so no {@link java.awt.Color} is created.
+     *
+     * @param image  the padded image.
+     * @param row    the row of the block.
+     * @param column the column of the block.
+     * @return the hash of the block.
+     */
+    private long hashBlock(Image image, int row, int column) {
+        int blockWidth = width / resolution;
+        int blockHeight = height / resolution;
+        long hash = HASH_SEED;
+        for (int y = row * blockHeight; y < (row + 1) * blockHeight; y++) {
+            for (int x = column * blockWidth; x < (column + 1) * blockWidth; x++) {
+                int rgb = image.getPixelRGB(y, x);
+                for (int shift : RGB_BYTE_SHIFTS) {
+                    hash = (hash ^ ((rgb >>> shift) & BYTE_MASK)) * HASH_PRIME;
+                }
+            }
+        }
+        return hash ^ (hash >>> MIX_SHIFT);
+    }
+}
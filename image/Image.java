@@ -7,6 +7,7 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.stream.IntStream;
 
 /**
  * The Image class represents an image in memory using a 2D array of pixels.
@@ -62,6 +63,19 @@ public class Image {
         this.height = height;
     }
 
+    /**
+     * Constructor for subclasses that keep their pixels outside of a 2D array of {@link Color}.
+     * Such subclasses must override {@link #getPixel(int, int)} and {@link #getPixelLuminance(int, int)}.
+     *
+     * @param width  the width of the image.
+     * @param height the height of the image.
+     */
+    protected Image(int width, int height) {
+        this.pixelArray = null;
+        this.width = width;
+        this.height = height;
+    }
+
     /**
      * Gets the width of the image.
      *
@@ -91,17 +105,40 @@ public class Image {
         return pixelArray[x][y];
     }
 
+    /**
+     * Gets the packed RGB value of a pixel at a specific coordinate, as {@link Color#getRGB()}.
+     * <p>
+     * Subclasses that do not store {@link Color} objects override it to avoid creating one per pixel.
+     * </p>
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the packed RGB value of the pixel, with an opaque alpha.
+     */
+    public int getPixelRGB(int x, int y) {
+        return getPixel(x, y).getRGB();
+    }
+
+    /**
+     * Gets the part of the image that holds its own pixels, as opposed to padding added around them.
+     * The x of the rectangle is a column and its y is a row.
+     *
+     * @return the bounds of the content, the whole image unless it is a padded view.
+     */
+    public Rectangle getContentBounds() {
+        return new Rectangle(0, 0, width, height);
+    }
+
     /**
      * Saves the current image to a file in JPEG format.
      *
      * @param fileName the name of the file to save the image as.
      */
     public void saveImage(String fileName) {
-        BufferedImage bufferedImage = new BufferedImage(pixelArray[0].length, pixelArray.length,
-                BufferedImage.TYPE_INT_RGB);
-        for (int x = 0; x < pixelArray.length; x++) {
-            for (int y = 0; y < pixelArray[x].length; y++) {
-                bufferedImage.setRGB(y, x, pixelArray[x][y].getRGB());
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < height; x++) {
+            for (int y = 0; y < width; y++) {
+                bufferedImage.setRGB(y, x, getPixel(x, y).getRGB());
             }
         }
         File outputfile = new File(fileName + ".jpeg");
@@ -113,70 +150,71 @@ public class Image {
     }
 
     /**
-     * Divides the image into smaller sub-images of the specified resolution.
+     * Calculates the brightness of every block of a grid of equal blocks that starts at the top left
+     * corner of the image. Rows of blocks are summed in parallel, and the pixels of every block are
+     * summed row by row, so the result does not depend on the part of the image the grid covers.
      *
-     * <p>
-     * This method splits the image into smaller blocks (sub-images) based on the resolution parameter, which
-     * represents the number of divisions along each dimension (width and height). Each sub-image will be of
-     * approximately equal size.
-     * </p>
+     * @param rows        the number of rows of blocks.
+     * @param columns     the number of columns of blocks.
+     * @param blockWidth  the width of a block in pixels.
+     * @param blockHeight the height of a block in pixels.
+     * @return a 2D array where entry [row][column] is the brightness of the block, between 0 and 1.
+     */
+    public double[][] calculateBrightnessGrid(int rows, int columns, int blockWidth, int blockHeight) {
+        double[][] brightnessGrid = new double[rows][columns];
+
+        // Every block row only writes its own row of the grid.
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            double[] rowSums = brightnessGrid[row];
+            for (int y = row * blockHeight; y < (row + OFFSET) * blockHeight; y++) {
+                for (int x = 0; x < columns * blockWidth; x++) {
+                    rowSums[x / blockWidth] += getPixelLuminance(y, x);
+                }
+            }
+            for (int column = 0; column < columns; column++) {
+                rowSums[column] /= (double) blockHeight * blockWidth * MAX_RGB;
+            }
+        });
+        return brightnessGrid;
+    }
+
+    /**
+     * Calculates the brightness of a single block of the image divided into resolution x resolution
+     * equal blocks, without copying its pixels.
      *
      * @param resolution the number of divisions along the width and height.
-     * @return a 2D array of {@link SubImage} objects representing the divided sub-images.
+     * @param row        the row of the block.
+     * @param column     the column of the block.
+     * @return the brightness of the block, between 0 and 1.
      */
-    public SubImage[][] divideImage(int resolution) {
+    public double calculateBlockBrightness(int resolution, int row, int column) {
         int newWidth = width / resolution;
         int newHeight = height / resolution;
-        SubImage[][] subImages = new SubImage[resolution][resolution];
-
-        // Iterate over each block and extract the sub-image
-        for (int i = 0; i < resolution; i++) {
-            for (int j = 0; j < resolution; j++) {
-                int xStart = i * newWidth;
-                int yStart = j * newHeight;
-                int xEnd = (i + OFFSET) * newWidth;
-                int yEnd = (j + OFFSET) * newHeight;
-
-                Color[][] subImagePixels = new Color[newHeight][newWidth];
-                for (int x = xStart; x < xEnd; x++) {
-                    for (int y = yStart; y < yEnd; y++) {
-                        subImagePixels[y - yStart][x - xStart] = pixelArray[y][x];
-                    }
-                }
-                subImages[j][i] = new SubImage(subImagePixels, newWidth, newHeight);
+        double sum = 0;
+        for (int y = row * newHeight; y < (row + OFFSET) * newHeight; y++) {
+            for (int x = column * newWidth; x < (column + OFFSET) * newWidth; x++) {
+                sum += getPixelLuminance(y, x);
             }
         }
-        return subImages;
+        return sum / ((double) newHeight * newWidth * MAX_RGB);
     }
 
     /**
-     * Creates a new image by padding the original image to the next power of two in both width and height.
+     * Pads the image to the next power of two in both width and height.
      * <p>
-     * This method increases the width and height of the image by adding padding of white pixels
-     * to make the dimensions a power of two, which is useful for certain image processing algorithms
-     * (such as fast Fourier transform).
+     * The image is centered in a frame of white pixels whose dimensions are powers of two, which is
+     * useful for certain image processing algorithms (such as fast Fourier transform). The result is a
+     * view of this image, no pixel is copied.
      * </p>
      *
-     * @return a new {@link Image} instance with padded dimensions.
+     * @return an {@link Image} with padded dimensions that reads its pixels from this image.
      */
     public Image createPaddingImageToNextPowerOfTwo() {
         int newWidth = nextPowerOfTwo(width);
         int newHeight = nextPowerOfTwo(height);
         int paddingTop = (newHeight - height) / PADDING_FROM_BORDER;
         int paddingLeft = (newWidth - width) / PADDING_FROM_BORDER;
-
-        Color[][] newPixelArray = new Color[newHeight][newWidth];
-        for (int i = 0; i < newHeight; i++) {
-            for (int j = 0; j < newWidth; j++) {
-                if (i >= paddingTop && i < paddingTop + height &&
-                        j >= paddingLeft && j < paddingLeft + width) {
-                    newPixelArray[i][j] = pixelArray[i - paddingTop][j - paddingLeft];
-                } else {
-                    newPixelArray[i][j] = Color.WHITE;
-                }
-            }
-        }
-        return new Image(newPixelArray, newWidth, newHeight);
+        return new PaddedImage(this, newWidth, newHeight, paddingTop, paddingLeft);
     }
 
     /**
@@ -192,15 +230,38 @@ public class Image {
         double sum = 0;
         for (int i = 0; i < height; i++) {
             for (int j = 0; j < width; j++) {
-                Color curruntPixelColor = pixelArray[i][j];
-                sum += (curruntPixelColor.getRed() * RED_VALUE) +
-                        (curruntPixelColor.getGreen() * GREEN_VALUE) +
-                        (curruntPixelColor.getBlue() * BLUE_VALUE);
+                sum += getPixelLuminance(i, j);
             }
         }
         return sum / (height * width * MAX_RGB);
     }
 
+    /**
+     * Calculates the luminance of a single pixel with the same weights as
+     * {@link #calculateBrightnessByImage()}.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the luminance of the pixel, between 0 and 255.
+     */
+    public double getPixelLuminance(int x, int y) {
+        Color curruntPixelColor = pixelArray[x][y];
+        return calculateLuminance(curruntPixelColor.getRed(), curruntPixelColor.getGreen(),
+                curruntPixelColor.getBlue());
+    }
+
+    /**
+     * Calculates the luminance of a color given by its channels, using the standard luminance weights.
+     *
+     * @param red   the red channel, between 0 and 255.
+     * @param green the green channel, between 0 and 255.
+     * @param blue  the blue channel, between 0 and 255.
+     * @return the luminance of the color, between 0 and 255.
+     */
+    protected static double calculateLuminance(int red, int green, int blue) {
+        return (red * RED_VALUE) + (green * GREEN_VALUE) + (blue * BLUE_VALUE);
+    }
+
     /**
      * Returns the next power of two that is greater than or equal to the given number.
      *
@@ -0,0 +1,88 @@
+package image;
+
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * The LuminancePyramid class holds the sub-image brightness grids of an image for every
+ * power-of-two resolution up to a finest one.
+ * <p>
+ * Only the finest grid is calculated from the pixels, by the caller. Every coarser level is built by
+ * averaging 2x2 blocks of the level above it, which is exact because on a padded image all the blocks
+ * of a level have the same number of pixels. Rendering every level therefore costs little more than
+ * rendering the finest one.
+ * </p>
+ */
+public class LuminancePyramid {
+
+    private static final int LEVEL_FACTOR = 2;
+    private static final int BLOCKS_PER_PARENT = LEVEL_FACTOR * LEVEL_FACTOR;
+    private static final int MIN_RESOLUTION = 1;
+
+    private final TreeMap<Integer, double[][]> levels;
+
+    /**
+     * Constructor for building the pyramid from a finest level that was already calculated.
+     *
+     * @param finestLevel   the brightness grid of the finest resolution, a power of two.
+     * @param minResolution the coarsest resolution that is still needed.
+     * @param levelListener called with the resolution of every coarser level once it is built, before
+     *                      the next one. It may throw to stop building.
+     */
+    public LuminancePyramid(double[][] finestLevel, int minResolution, IntConsumer levelListener) {
+        levels = new TreeMap<>();
+        double[][] level = finestLevel;
+        levels.put(finestLevel.length, level);
+        for (int resolution = finestLevel.length / LEVEL_FACTOR;
+             resolution >= Math.max(minResolution, MIN_RESOLUTION); resolution /= LEVEL_FACTOR) {
+            level = aggregate(level, resolution);
+            levels.put(resolution, level);
+            levelListener.accept(resolution);
+        }
+    }
+
+    /**
+     * Counts the blocks of every level of a pyramid.
+     *
+     * @param finestResolution the finest resolution, a power of two.
+     * @param minResolution    the coarsest resolution that is still needed.
+     * @return the number of blocks of all the levels together.
+     */
+    public static int countBlocks(int finestResolution, int minResolution) {
+        int blocks = 0;
+        for (int resolution = finestResolution; resolution >= Math.max(minResolution, MIN_RESOLUTION);
+             resolution /= LEVEL_FACTOR) {
+            blocks += resolution * resolution;
+        }
+        return blocks;
+    }
+
+    /**
+     * Returns the levels of the pyramid ordered from the coarsest resolution to the finest.
+     *
+     * @return a map from resolution to the brightness grid of that resolution.
+     */
+    public TreeMap<Integer, double[][]> getLevels() {
+        return levels;
+    }
+
+    /**
+     * Averages every 2x2 group of blocks of a level into one block of the next coarser level.
+     *
+     * @param finerLevel the brightness grid of the finer level.
+     * @param resolution the resolution of the coarser level.
+     * @return the brightness grid of the coarser level.
+     */
+    private static double[][] aggregate(double[][] finerLevel, int resolution) {
+        double[][] level = new double[resolution][resolution];
+        for (int i = 0; i < resolution; i++) {
+            for (int j = 0; j < resolution; j++) {
+                int row = i * LEVEL_FACTOR;
+                int column = j * LEVEL_FACTOR;
+                level[i][j] = (finerLevel[row][column] + finerLevel[row][column + 1]
+                        + finerLevel[row + 1][column] + finerLevel[row + 1][column + 1]) / BLOCKS_PER_PARENT;
+            }
+        }
+        return level;
+    }
+}
@@ -0,0 +1,299 @@
+package image;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The MappedImage class is an image whose pixels stay in a memory-mapped file instead of being decoded
+ * into a 2D array of {@link Color}.
+ * <p>
+ * It supports binary PGM and PPM files (P5 and P6, with 8 or 16 bits per sample) and headerless raw
+ * files of gray, RGB or RGBA samples with given dimensions. The file is mapped read-only with
+ * {@link FileChannel#map} and every pixel is read directly from the mapped buffer when it is requested,
+ * so loading an uncompressed frame costs no decoding and no copy.
+ * </p>
+ */
+public class MappedImage extends Image {
+
+    /**
+     * Number of samples per pixel of a gray image.
+     */
+    public static final int GRAY_CHANNELS = 1;
+
+    /**
+     * Number of samples per pixel of an RGB image.
+     */
+    public static final int RGB_CHANNELS = 3;
+
+    /**
+     * Number of samples per pixel of an RGBA image, the alpha sample is ignored.
+     */
+    public static final int RGBA_CHANNELS = 4;
+
+    private static final String PGM_MAGIC = "P5";
+    private static final String PPM_MAGIC = "P6";
+    private static final String MSG_UNSUPPORTED_FORMAT = "Unsupported PNM format: ";
+    private static final String MSG_BAD_HEADER = "Malformed PNM header in ";
+    private static final String MSG_BAD_DIMENSIONS = "Image dimensions must be positive: ";
+    private static final String MSG_BAD_CHANNELS = "Unsupported number of channels: ";
+    private static final String MSG_FILE_TOO_SHORT = "File is too short for its dimensions: ";
+    private static final String MSG_TOO_LARGE_TO_MAP = "Image too large to map, files are limited to 2 GB: ";
+    private static final char COMMENT_START = '#';
+    private static final char END_OF_LINE = '\n';
+    private static final int MAGIC_LENGTH = 2;
+    private static final int MAX_RGB = 255;
+    private static final int MAX_SAMPLE_ONE_BYTE = 255;
+    private static final int MAX_SAMPLE_TWO_BYTES = 65535;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int BITS_IN_BYTE = 8;
+    private static final int RED_SAMPLE = 0;
+    private static final int GREEN_SAMPLE = 1;
+    private static final int BLUE_SAMPLE = 2;
+    private static final int OPAQUE_ALPHA = 0xFF000000;
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+    private static final int DECIMAL_BASE = 10;
+    private static final int NO_HEADER = 0;
+
+    private final MappedByteBuffer buffer;
+    private final int dataOffset;
+    private final int channels;
+    private final int bytesPerSample;
+    private final int maxSample;
+
+    /**
+     * Constructor for creating an image over an already mapped buffer.
+     *
+     * @param buffer     the mapped file.
+     * @param dataOffset the offset of the first sample in the buffer.
+     * @param width      the width of the image.
+     * @param height     the height of the image.
+     * @param channels   the number of samples per pixel.
+     * @param maxSample  the value of a sample at full intensity.
+     */
+    private MappedImage(MappedByteBuffer buffer, int dataOffset, int width, int height,
+                        int channels, int maxSample) {
+        super(width, height);
+        this.buffer = buffer;
+        this.dataOffset = dataOffset;
+        this.channels = channels;
+        this.maxSample = maxSample;
+        this.bytesPerSample = maxSample > MAX_SAMPLE_ONE_BYTE ? 2 : 1;
+    }
+
+    /**
+     * Loads a binary PGM (P5) or PPM (P6) file.
+     *
+     * @param filename the path to the image file to load.
+     * @return the mapped image.
+     * @throws IOException if the file cannot be read or is not a supported PNM file.
+     */
+    public static MappedImage loadPnm(String filename) throws IOException {
+        MappedByteBuffer buffer = map(filename);
+        int[] position = {MAGIC_LENGTH};
+        String magic = buffer.limit() < MAGIC_LENGTH ? "" :
+                "" + (char) buffer.get(0) + (char) buffer.get(1);
+        int channels;
+        switch (magic) {
+            case PGM_MAGIC -> channels = GRAY_CHANNELS;
+            case PPM_MAGIC -> channels = RGB_CHANNELS;
+            default -> throw new IOException(MSG_UNSUPPORTED_FORMAT + filename);
+        }
+        int width = readHeaderNumber(buffer, position, filename);
+        int height = readHeaderNumber(buffer, position, filename);
+        int maxSample = readHeaderNumber(buffer, position, filename);
+        if (maxSample <= 0 || maxSample > MAX_SAMPLE_TWO_BYTES) {
+            throw new IOException(MSG_BAD_HEADER + filename);
+        }
+
+        // Exactly one whitespace byte separates the header from the samples.
+        return create(buffer, position[0] + 1, width, height, channels, maxSample, filename);
+    }
+
+    /**
+     * Loads a headerless file of 8-bit samples stored row by row.
+     *
+     * @param filename the path to the image file to load.
+     * @param width    the width of the image.
+     * @param height   the height of the image.
+     * @param channels the number of samples per pixel: {@link #GRAY_CHANNELS}, {@link #RGB_CHANNELS}
+     *                 or {@link #RGBA_CHANNELS}.
+     * @return the mapped image.
+     * @throws IOException if the file cannot be read or is shorter than its dimensions.
+     */
+    public static MappedImage loadRaw(String filename, int width, int height, int channels)
+            throws IOException {
+        if (channels != GRAY_CHANNELS && channels != RGB_CHANNELS && channels != RGBA_CHANNELS) {
+            throw new IOException(MSG_BAD_CHANNELS + channels);
+        }
+        return create(map(filename), NO_HEADER, width, height, channels, MAX_SAMPLE_ONE_BYTE, filename);
+    }
+
+    /**
+     * Gets the color of a pixel at a specific coordinate, read from the mapped file.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the {@link Color} of the pixel at the specified coordinates.
+     */
+    @Override
+    public Color getPixel(int x, int y) {
+        int index = sampleIndex(x, y);
+        if (channels == GRAY_CHANNELS) {
+            int gray = readSample(index);
+            return new Color(gray, gray, gray);
+        }
+        return new Color(readSample(index + RED_SAMPLE * bytesPerSample),
+                readSample(index + GREEN_SAMPLE * bytesPerSample),
+                readSample(index + BLUE_SAMPLE * bytesPerSample));
+    }
+
+    /**
+     * Gets the packed RGB value of a pixel at a specific coordinate, read from the mapped file without
+     * creating a {@link Color}.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the packed RGB value of the pixel, with an opaque alpha.
+     */
+    @Override
+    public int getPixelRGB(int x, int y) {
+        int index = sampleIndex(x, y);
+        if (channels == GRAY_CHANNELS) {
+            int gray = readSample(index);
+            return OPAQUE_ALPHA | (gray << RED_SHIFT) | (gray << GREEN_SHIFT) | gray;
+        }
+        return OPAQUE_ALPHA | (readSample(index + RED_SAMPLE * bytesPerSample) << RED_SHIFT)
+                | (readSample(index + GREEN_SAMPLE * bytesPerSample) << GREEN_SHIFT)
+                | readSample(index + BLUE_SAMPLE * bytesPerSample);
+    }
+
+    /**
+     * Calculates the luminance of a single pixel directly from the mapped file.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the luminance of the pixel, between 0 and 255.
+     */
+    @Override
+    public double getPixelLuminance(int x, int y) {
+        int index = sampleIndex(x, y);
+        if (channels == GRAY_CHANNELS) {
+            int gray = readSample(index);
+            return calculateLuminance(gray, gray, gray);
+        }
+        return calculateLuminance(readSample(index + RED_SAMPLE * bytesPerSample),
+                readSample(index + GREEN_SAMPLE * bytesPerSample),
+                readSample(index + BLUE_SAMPLE * bytesPerSample));
+    }
+
+    /**
+     * Returns the offset of the first sample of a pixel in the mapped buffer.
+     *
+     * @param x the row of the pixel.
+     * @param y the column of the pixel.
+     * @return the offset of the pixel.
+     */
+    private int sampleIndex(int x, int y) {
+        return dataOffset + (x * getWidth() + y) * channels * bytesPerSample;
+    }
+
+    /**
+     * Reads a single sample and scales it to be between 0 and 255.
+     *
+     * @param index the offset of the sample in the mapped buffer.
+     * @return the scaled sample.
+     */
+    private int readSample(int index) {
+        int sample = buffer.get(index) & BYTE_MASK;
+        if (bytesPerSample > 1) {
+            sample = (sample << BITS_IN_BYTE) | (buffer.get(index + 1) & BYTE_MASK);
+        }
+        return maxSample == MAX_RGB ? sample : sample * MAX_RGB / maxSample;
+    }
+
+    /**
+     * Maps a whole file read-only into memory. The mapping stays valid after the channel is closed.
+     *
+     * @param filename the path to the file.
+     * @return the mapped buffer.
+     * @throws IOException if the file cannot be read or is too large to map.
+     */
+    private static MappedByteBuffer map(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IllegalArgumentException e) {
+            // A single mapping is limited to Integer.MAX_VALUE bytes.
+            throw new IOException(MSG_TOO_LARGE_TO_MAP + filename, e);
+        }
+    }
+
+    /**
+     * Validates the dimensions against the size of the mapped file and creates the image.
+     *
+     * @param buffer     the mapped file.
+     * @param dataOffset the offset of the first sample in the buffer.
+     * @param width      the width of the image.
+     * @param height     the height of the image.
+     * @param channels   the number of samples per pixel.
+     * @param maxSample  the value of a sample at full intensity.
+     * @param filename   the path to the file, for error messages.
+     * @return the mapped image.
+     * @throws IOException if the dimensions are not positive or the file is too short.
+     */
+    private static MappedImage create(MappedByteBuffer buffer, int dataOffset, int width, int height,
+                                      int channels, int maxSample, String filename) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IOException(MSG_BAD_DIMENSIONS + filename);
+        }
+        long bytesPerSample = maxSample > MAX_SAMPLE_ONE_BYTE ? 2 : 1;
+        if (dataOffset + (long) width * height * channels * bytesPerSample > buffer.limit()) {
+            throw new IOException(MSG_FILE_TOO_SHORT + filename);
+        }
+        return new MappedImage(buffer, dataOffset, width, height, channels, maxSample);
+    }
+
+    /**
+     * Reads the next decimal number of a PNM header, skipping whitespace and comments.
+     *
+     * @param buffer   the mapped file.
+     * @param position a single element array holding the current position, advanced past the number.
+     * @param filename the path to the file, for error messages.
+     * @return the number.
+     * @throws IOException if the header ends or contains something other than a number.
+     */
+    private static int readHeaderNumber(MappedByteBuffer buffer, int[] position, String filename)
+            throws IOException {
+        int index = position[0];
+        while (index < buffer.limit()) {
+            char c = (char) buffer.get(index);
+            if (c == COMMENT_START) {
+                while (index < buffer.limit() && buffer.get(index) != END_OF_LINE) {
+                    index++;
+                }
+            } else if (Character.isWhitespace(c)) {
+                index++;
+            } else {
+                break;
+            }
+        }
+        long number = 0;
+        int start = index;
+        while (index < buffer.limit() && Character.isDigit((char) buffer.get(index))) {
+            number = number * DECIMAL_BASE + (buffer.get(index) - '0');
+            if (number > Integer.MAX_VALUE) {
+                throw new IOException(MSG_BAD_HEADER + filename);
+            }
+            index++;
+        }
+        if (index == start) {
+            throw new IOException(MSG_BAD_HEADER + filename);
+        }
+        position[0] = index;
+        return (int) number;
+    }
+}
@@ -0,0 +1,102 @@
+package image;
+
+import java.awt.*;
+
+/**
+ * The PaddedImage class is a view of an image centered in a larger frame of white pixels. No pixel is
+ * copied: every pixel inside the source image is read from it, and every pixel of the frame is white,
+ * so padding a memory-mapped image keeps its pixels in the mapped file.
+ */
+class PaddedImage extends Image {
+
+    private static final double WHITE_LUMINANCE = calculateLuminance(Color.WHITE.getRed(),
+            Color.WHITE.getGreen(), Color.WHITE.getBlue());
+    private static final int WHITE_RGB = Color.WHITE.getRGB();
+
+    private final Image source;
+    private final int paddingTop;
+    private final int paddingLeft;
+
+    /**
+     * Constructor for creating a padded view of an image.
+     *
+     * @param source      the image to pad.
+     * @param width       the width of the padded image.
+     * @param height      the height of the padded image.
+     * @param paddingTop  the number of white rows above the source image.
+     * @param paddingLeft the number of white columns to the left of the source image.
+     */
+    PaddedImage(Image source, int width, int height, int paddingTop, int paddingLeft) {
+        super(width, height);
+        this.source = source;
+        this.paddingTop = paddingTop;
+        this.paddingLeft = paddingLeft;
+    }
+
+    /**
+     * Gets the color of a pixel at a specific coordinate, white outside of the source image.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the {@link Color} of the pixel at the specified coordinates.
+     */
+    @Override
+    public Color getPixel(int x, int y) {
+        if (isInSource(x, y)) {
+            return source.getPixel(x - paddingTop, y - paddingLeft);
+        }
+        return Color.WHITE;
+    }
+
+    /**
+     * Gets the packed RGB value of a pixel at a specific coordinate, white outside of the source image.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the packed RGB value of the pixel, with an opaque alpha.
+     */
+    @Override
+    public int getPixelRGB(int x, int y) {
+        if (isInSource(x, y)) {
+            return source.getPixelRGB(x - paddingTop, y - paddingLeft);
+        }
+        return WHITE_RGB;
+    }
+
+    /**
+     * Calculates the luminance of a single pixel, read from the source image or white outside of it.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the luminance of the pixel, between 0 and 255.
+     */
+    @Override
+    public double getPixelLuminance(int x, int y) {
+        if (isInSource(x, y)) {
+            return source.getPixelLuminance(x - paddingTop, y - paddingLeft);
+        }
+        return WHITE_LUMINANCE;
+    }
+
+    /**
+     * Gets the part of the padded image that is read from the source image.
+     *
+     * @return the bounds of the source image inside the frame.
+     */
+    @Override
+    public Rectangle getContentBounds() {
+        return new Rectangle(paddingLeft, paddingTop, source.getWidth(), source.getHeight());
+    }
+
+    /**
+     * Checks whether a pixel of the padded image belongs to the source image.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return true if the pixel is inside the source image, false if it is padding.
+     */
+    private boolean isInSource(int x, int y) {
+        return x >= paddingTop && x < paddingTop + source.getHeight()
+                && y >= paddingLeft && y < paddingLeft + source.getWidth();
+    }
+}
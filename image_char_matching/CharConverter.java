@@ -2,6 +2,11 @@ package image_char_matching;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Inspired by, and partly copied from
@@ -10,23 +15,105 @@ import java.awt.image.BufferedImage;
  * https://dzone.com/articles/ascii-art-generator-java
  * Adaptations made by Dan Nirel and again by Rachel Behar.
  * The class converts characters to a binary "image" (2D array of booleans).
+ * <p>
+ * Printable ASCII characters in the default font and size are read from a precomputed glyph table
+ * resource, loaded the first time it is needed, so the default charset never starts the AWT font
+ * system. Other characters, fonts and sizes are rasterized with AWT, and so is everything if the table
+ * is missing or was rasterized in a family other than {@link #FONT_NAME}. The default font is the
+ * logical font Dialog, which every JVM provides, so the shipped table is never rejected because of a
+ * substituted family.
+ * </p>
  */
 public class CharConverter {
     private static final double X_OFFSET_FACTOR = 0.2;
     private static final double Y_OFFSET_FACTOR = 0.75;
-    private static final String FONT_NAME = "Courier New";
+    static final String FONT_NAME = "Dialog";
     public static final int DEFAULT_PIXEL_RESOLUTION = 16;
 
+    /**
+     * Name of the glyph table resource, relative to this class.
+     */
+    static final String GLYPH_TABLE_RESOURCE = "dialog_16.glyphs";
+
+    /**
+     * First character of the glyph table.
+     */
+    static final char FIRST_TABLE_CHAR = 32;
+
+    /**
+     * Last character of the glyph table.
+     */
+    static final char LAST_TABLE_CHAR = 126;
+
+    /**
+     * Starts a comment line of the glyph table.
+     */
+    static final String GLYPH_TABLE_COMMENT = "#";
+
+    /**
+     * Starts the comment line of the glyph table that records the font family it was rasterized with.
+     */
+    static final String GLYPH_TABLE_FAMILY_HEADER = GLYPH_TABLE_COMMENT + " Rasterized with font family: ";
+
+    private static final String GLYPH_TABLE_SEPARATOR = " ";
+    private static final int HEX_RADIX = 16;
+
     /**
      * Renders a given character, according to how it looks in the font specified in the
      * constructor, to a square black&white image (2D array of booleans),
      * whose dimension in pixels is specified.
      */
     public static boolean[][] convertToBoolArray(char c) {
-        BufferedImage img = getBufferedImage(c, FONT_NAME, DEFAULT_PIXEL_RESOLUTION);
-        boolean[][] matrix = new boolean[DEFAULT_PIXEL_RESOLUTION][DEFAULT_PIXEL_RESOLUTION];
-        for(int y = 0 ; y < DEFAULT_PIXEL_RESOLUTION ; y++) {
-            for(int x = 0 ; x < DEFAULT_PIXEL_RESOLUTION ; x++) {
+        return convertToBoolArray(c, FONT_NAME, DEFAULT_PIXEL_RESOLUTION);
+    }
+
+    /**
+     * Converts a character in a given font and size to a square black&white image, taken from the
+     * glyph table for printable ASCII in the default font and size, and rasterized otherwise.
+     *
+     * @param c            the character.
+     * @param fontName     the name of the font.
+     * @param pixelsPerRow the size of the font and the dimension of the image in pixels.
+     * @return the image, a new array on every call.
+     */
+    public static boolean[][] convertToBoolArray(char c, String fontName, int pixelsPerRow) {
+        if (fontName.equals(FONT_NAME) && pixelsPerRow == DEFAULT_PIXEL_RESOLUTION
+                && c >= FIRST_TABLE_CHAR && c <= LAST_TABLE_CHAR) {
+            boolean[][][] glyphTable = GlyphTableHolder.GLYPH_TABLE;
+            if (glyphTable != null) {
+                boolean[][] matrix = new boolean[pixelsPerRow][];
+                for (int y = 0; y < pixelsPerRow; y++) {
+                    matrix[y] = glyphTable[c - FIRST_TABLE_CHAR][y].clone();
+                }
+                return matrix;
+            }
+        }
+        return rasterizeToBoolArray(c, fontName, pixelsPerRow);
+    }
+
+    /**
+     * Checks whether the glyph table resource was loaded, loading it if it was not needed yet.
+     *
+     * @return true if printable ASCII in the default font and size is read from the table.
+     */
+    static boolean hasGlyphTable() {
+        return GlyphTableHolder.GLYPH_TABLE != null;
+    }
+
+    /**
+     * Converts a character in a given font and size to a square black&white image by rasterizing it
+     * with AWT, never reading the glyph table. Used to generate the glyph table.
+     *
+     * @param c            the character.
+     * @param fontName     the name of the font.
+     * @param pixelsPerRow the size of the font and the dimension of the image in pixels.
+     * @return the image.
+     */
+    public static boolean[][] rasterizeToBoolArray(char c, String fontName, int pixelsPerRow) {
+        BufferedImage img = getBufferedImage(c, fontName, pixelsPerRow);
+        boolean[][] matrix = new boolean[pixelsPerRow][pixelsPerRow];
+        for(int y = 0 ; y < pixelsPerRow ; y++) {
+            for(int x = 0 ; x < pixelsPerRow ; x++) {
                 matrix[y][x] = img.getRGB(x, y) == 0; //is the color black
             }
         }
@@ -45,4 +132,68 @@ public class CharConverter {
         return img;
     }
 
+    /**
+     * Reads the glyph table resource. Every line that is not a comment holds the code of a character
+     * followed by one hexadecimal mask per row of its image, the leftmost pixel in the highest bit.
+     *
+     * @return the image of every character of the table, indexed from {@link #FIRST_TABLE_CHAR}, or
+     * null if the resource is missing or incomplete, or was not rasterized in {@link #FONT_NAME}.
+     */
+    private static boolean[][][] loadGlyphTable() {
+        InputStream resource = CharConverter.class.getResourceAsStream(GLYPH_TABLE_RESOURCE);
+        if (resource == null) {
+            return null;
+        }
+        boolean[][][] glyphTable = new boolean[LAST_TABLE_CHAR - FIRST_TABLE_CHAR + 1][][];
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource, StandardCharsets.US_ASCII))) {
+            boolean familyMatches = false;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.startsWith(GLYPH_TABLE_FAMILY_HEADER)) {
+                    // A table rasterized in a substituted font would draw the wrong glyphs.
+                    String family = line.substring(GLYPH_TABLE_FAMILY_HEADER.length()).trim();
+                    familyMatches = family.equals(FONT_NAME);
+                    if (!familyMatches) {
+                        return null;
+                    }
+                    continue;
+                }
+                if (line.isBlank() || line.startsWith(GLYPH_TABLE_COMMENT)) {
+                    continue;
+                }
+                String[] fields = line.trim().split(GLYPH_TABLE_SEPARATOR);
+                int c = Integer.parseInt(fields[0]);
+                if (c < FIRST_TABLE_CHAR || c > LAST_TABLE_CHAR
+                        || fields.length != DEFAULT_PIXEL_RESOLUTION + 1) {
+                    return null;
+                }
+                boolean[][] matrix = new boolean[DEFAULT_PIXEL_RESOLUTION][DEFAULT_PIXEL_RESOLUTION];
+                for (int y = 0; y < DEFAULT_PIXEL_RESOLUTION; y++) {
+                    int mask = Integer.parseInt(fields[y + 1], HEX_RADIX);
+                    for (int x = 0; x < DEFAULT_PIXEL_RESOLUTION; x++) {
+                        matrix[y][x] = (mask & (1 << (DEFAULT_PIXEL_RESOLUTION - 1 - x))) != 0;
+                    }
+                }
+                glyphTable[c - FIRST_TABLE_CHAR] = matrix;
+            }
+            if (!familyMatches) {
+                return null;
+            }
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+        for (boolean[][] matrix : glyphTable) {
+            if (matrix == null) {
+                return null;
+            }
+        }
+        return glyphTable;
+    }
+
+    /**
+     * Holds the glyph table, loaded when the holder is first used.
+     */
+    private static class GlyphTableHolder {
+        private static final boolean[][][] GLYPH_TABLE = loadGlyphTable();
+    }
 }
@@ -0,0 +1,269 @@
+package image_char_matching;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The CharsetSnapshot class is an immutable state of a {@link SubImgCharMatcher}: the charset with the
+ * brightness of every character, the normalized brightness values, the rounding method and a lookup
+ * index over the normalized values.
+ * <p>
+ * A snapshot is never changed after construction, so it can be shared by any number of threads without
+ * locking. The index keeps the characters sorted by normalized brightness (and by character for equal
+ * brightness), so finding the closest character is a binary search instead of a scan of the charset.
+ * </p>
+ */
+public final class CharsetSnapshot {
+
+    private static final char SPACE_CHAR_VALUE = ' ';
+    private static final String STRING_TO_SPLIT = " ";
+    private static final int NOT_FOUND = -1;
+
+    private final Map<Character, Double> charset;
+    private final Map<Character, Double> charsetNormal;
+    private final String roundBrightness;
+    private final char[] sortedChars;
+    private final double[] sortedValues;
+    private final int[] groupStarts;
+
+    /**
+     * Constructor for creating a snapshot of a charset, normalizing its brightness values and
+     * building the lookup index.
+     *
+     * @param charset         the characters of the charset with their brightness, not normalized.
+     * @param roundBrightness the rounding method for brightness comparison.
+     */
+    public CharsetSnapshot(Map<Character, Double> charset, String roundBrightness) {
+        this.charset = Collections.unmodifiableMap(new HashMap<>(charset));
+        this.charsetNormal = Collections.unmodifiableMap(normalCharBrightness(charset));
+        this.roundBrightness = roundBrightness;
+
+        // Index only comparable values, a character with a NaN brightness can never be the closest.
+        Character[] indexedChars = charsetNormal.keySet().stream()
+                .filter(c -> !Double.isNaN(charsetNormal.get(c)))
+                .sorted((first, second) -> {
+                    int byValue = Double.compare(charsetNormal.get(first), charsetNormal.get(second));
+                    return byValue != 0 ? byValue : Character.compare(first, second);
+                })
+                .toArray(Character[]::new);
+        sortedChars = new char[indexedChars.length];
+        sortedValues = new double[indexedChars.length];
+        groupStarts = new int[indexedChars.length];
+        for (int i = 0; i < indexedChars.length; i++) {
+            sortedChars[i] = indexedChars[i];
+            sortedValues[i] = charsetNormal.get(indexedChars[i]);
+            groupStarts[i] = i > 0 && sortedValues[i] == sortedValues[i - 1] ? groupStarts[i - 1] : i;
+        }
+    }
+
+    /**
+     * Constructor for creating a snapshot that shares the charset and index of another snapshot,
+     * with a different rounding method.
+     *
+     * @param other           the snapshot to share the charset with.
+     * @param roundBrightness the rounding method for brightness comparison.
+     */
+    private CharsetSnapshot(CharsetSnapshot other, String roundBrightness) {
+        this.charset = other.charset;
+        this.charsetNormal = other.charsetNormal;
+        this.roundBrightness = roundBrightness;
+        this.sortedChars = other.sortedChars;
+        this.sortedValues = other.sortedValues;
+        this.groupStarts = other.groupStarts;
+    }
+
+    /**
+     * Returns a snapshot with the same charset and the given rounding method.
+     *
+     * @param newType the new rounding method (default, up, down).
+     * @return the new snapshot.
+     */
+    public CharsetSnapshot withRoundBrightness(String newType) {
+        return new CharsetSnapshot(this, newType);
+    }
+
+    /**
+     * Returns the characters of the charset with their brightness, not normalized.
+     *
+     * @return an unmodifiable map from character to brightness.
+     */
+    public Map<Character, Double> getCharset() {
+        return charset;
+    }
+
+    /**
+     * Returns the rounding method of this snapshot.
+     *
+     * @return the rounding method (default, up, down).
+     */
+    public String getRoundBrightness() {
+        return roundBrightness;
+    }
+
+    /**
+     * Returns the normalized brightness of a character in the charset.
+     *
+     * @param c the character whose normalized brightness is requested.
+     * @return the normalized brightness of the character, or {@link Double#NaN} if it is not in the charset.
+     */
+    public double getNormalBrightnessByChar(char c) {
+        return charsetNormal.getOrDefault(c, Double.NaN);
+    }
+
+    /**
+     * Returns the number of characters in the charset.
+     *
+     * @return the size of the charset.
+     */
+    public int getNumberOfSet() {
+        return charset.size();
+    }
+
+    /**
+     * Returns the character that corresponds to the given brightness value based on
+     * the rounding method of this snapshot. Characters with equal brightness are resolved
+     * to the smallest character.
+     *
+     * @param brightness the brightness value for which to find the closest matching character.
+     * @return the character closest to the given brightness value.
+     */
+    public char getCharByImageBrightness(double brightness) {
+        if (Double.isNaN(brightness)) {
+            return SPACE_CHAR_VALUE;
+        }
+        int index = NOT_FOUND;
+        if (SubImgCharMatcher.ROUND_TYPE_DEFAULT.equals(roundBrightness)) {
+            index = findClosestAbs(brightness);
+        } else if (SubImgCharMatcher.ROUND_TYPE_1.equals(roundBrightness)) {
+            index = findClosestUp(brightness);
+        } else if (SubImgCharMatcher.ROUND_TYPE_2.equals(roundBrightness)) {
+            index = findClosestDown(brightness);
+        }
+        return index == NOT_FOUND ? SPACE_CHAR_VALUE : sortedChars[groupStarts[index]];
+    }
+
+    /**
+     * Returns the characters in the charset, each followed by a space.
+     *
+     * @return the characters of the charset.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (char c : charset.keySet()) {
+            builder.append(c).append(STRING_TO_SPLIT);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Finds the index of the character whose normalized brightness has the smallest absolute
+     * difference from the given brightness.
+     *
+     * @param brightness the brightness value to compare.
+     * @return the index of the closest character, or -1 if there is none.
+     */
+    private int findClosestAbs(double brightness) {
+        int above = findFirstNotBelow(brightness);
+        int below = above - 1;
+        if (above == sortedValues.length) {
+            return below;
+        }
+        if (below < 0) {
+            return above;
+        }
+        double differenceAbove = Math.abs(sortedValues[above] - brightness);
+        double differenceBelow = Math.abs(sortedValues[below] - brightness);
+        if (differenceAbove == differenceBelow) {
+            return sortedChars[groupStarts[below]] < sortedChars[groupStarts[above]] ? below : above;
+        }
+        return differenceBelow < differenceAbove ? below : above;
+    }
+
+    /**
+     * Finds the index of the character with the smallest normalized brightness that is greater than
+     * or equal to the given brightness.
+     *
+     * @param brightness the brightness value to compare.
+     * @return the index of the closest character, or -1 if there is none.
+     */
+    private int findClosestUp(double brightness) {
+        int above = findFirstNotBelow(brightness);
+        return above == sortedValues.length ? NOT_FOUND : above;
+    }
+
+    /**
+     * Finds the index of the character with the largest normalized brightness that is less than
+     * or equal to the given brightness. As in the original scan, a brightness of zero is never a match.
+     *
+     * @param brightness the brightness value to compare.
+     * @return the index of the closest character, or -1 if there is none.
+     */
+    private int findClosestDown(double brightness) {
+        int below = findFirstAbove(brightness) - 1;
+        return below < 0 || sortedValues[below] <= Double.MIN_VALUE ? NOT_FOUND : below;
+    }
+
+    /**
+     * Binary searches for the first index whose value is greater than or equal to the given brightness.
+     *
+     * @param brightness the brightness value to compare.
+     * @return the first such index, or the length of the index if there is none.
+     */
+    private int findFirstNotBelow(double brightness) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedValues[middle] < brightness) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Binary searches for the first index whose value is greater than the given brightness.
+     *
+     * @param brightness the brightness value to compare.
+     * @return the first such index, or the length of the index if there is none.
+     */
+    private int findFirstAbove(double brightness) {
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedValues[middle] <= brightness) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Normalizes the brightness of characters in the charset to be between 0 and 1.
+     *
+     * @param charset the characters of the charset with their brightness.
+     * @return a new map with the normalized brightness of every character.
+     */
+    private static Map<Character, Double> normalCharBrightness(Map<Character, Double> charset) {
+        double minCharBrightness = Double.MAX_VALUE;
+        double maxCharBrightness = Double.MIN_VALUE;
+        for (double value : charset.values()) {
+            if (value < minCharBrightness) { minCharBrightness = value; }
+            if (value > maxCharBrightness) { maxCharBrightness = value; }
+        }
+        Map<Character, Double> charsetNormal = new HashMap<>();
+        for (Map.Entry<Character, Double> entry : charset.entrySet()) {
+            double value = entry.getValue();
+            charsetNormal.put(entry.getKey(),
+                    (value - minCharBrightness) / (maxCharBrightness - minCharBrightness));
+        }
+        return charsetNormal;
+    }
+}
@@ -0,0 +1,201 @@
+package image_char_matching;
+
+import image.Image;
+
+import java.awt.*;
+import java.util.stream.IntStream;
+
+/**
+ * The EdgeCharMatcher class finds the sub-images that contain a strong edge with a dominant
+ * orientation, and matches each of them to a directional character instead of a brightness character.
+ * <p>
+ * The gradient is a Sobel operator, applied as its two separable passes: a horizontal pass
+ * (derivative and smoothing of every row) and a vertical pass that combines three rows of it. The
+ * passes are fused per tile, one tile being a row of sub-images: every tile keeps only three rows of
+ * horizontal results and accumulates the structure tensor (the sums of gx*gx, gy*gy and gx*gy) of each
+ * of its sub-images directly, so no gradient image is ever stored. Tiles are processed in parallel.
+ * </p>
+ */
+public class EdgeCharMatcher {
+
+    /**
+     * The value returned for a sub-image without a dominant edge.
+     */
+    public static final char NO_EDGE_CHAR = '\0';
+
+    // Directional characters, indexed by the orientation of the edge in steps of 45 degrees
+    private static final char[] EDGE_CHARS = {'-', '\\', '|', '/'};
+    private static final double ORIENTATION_STEP = Math.PI / EDGE_CHARS.length;
+    private static final double RIGHT_ANGLE = Math.PI / 2;
+    private static final double HALF = 0.5;
+    private static final double DOUBLE = 2.0;
+    private static final int SMOOTHING_CENTER_WEIGHT = 2;
+    private static final int TENSOR_XX = 0;
+    private static final int TENSOR_YY = 1;
+    private static final int TENSOR_XY = 2;
+    private static final int TENSOR_SIZE = 3;
+    private static final int ROLLING_ROWS = 3;
+    private static final double MAX_RGB = 255.0;
+
+    // A sub-image is an edge if its squared gradient per pixel of side length and its coherence are
+    // both high enough. An edge crossing a sub-image is as long as its side, so its energy grows with
+    // the side and not with the area, and a thin line is found at any resolution.
+    private static final double MIN_EDGE_ENERGY_PER_LENGTH = 4.0;
+    private static final double MIN_EDGE_COHERENCE = 0.6;
+
+    /**
+     * Matches every sub-image of the padded image that contains a dominant edge to a directional
+     * character. The padding around the content of the image has no gradient, so a sub-image that is
+     * only padding never has an edge, and the border between the content and the padding is not one.
+     *
+     * @param paddedImage an image whose width and height are powers of two.
+     * @param resolution  the number of divisions along the width and height, as in
+     *                    {@link Image#calculateBlockBrightness(int, int, int)}.
+     * @return a 2D char array with a directional character for every edge sub-image,
+     * and {@link #NO_EDGE_CHAR} for every other sub-image.
+     */
+    public static char[][] matchEdges(Image paddedImage, int resolution) {
+        int blockWidth = paddedImage.getWidth() / resolution;
+        int blockHeight = paddedImage.getHeight() / resolution;
+        Rectangle content = paddedImage.getContentBounds();
+        char[][] edgeChars = new char[resolution][resolution];
+
+        IntStream.range(0, resolution).parallel().forEach(row -> {
+            double[][] tensors = new double[resolution][TENSOR_SIZE];
+            accumulateTile(paddedImage, content, row * blockHeight, (row + 1) * blockHeight, blockWidth,
+                    tensors);
+            for (int column = 0; column < resolution; column++) {
+                edgeChars[row][column] = matchTensor(tensors[column], blockWidth * blockHeight);
+            }
+        });
+        return edgeChars;
+    }
+
+    /**
+     * Runs the fused Sobel kernel over the content pixels of one tile of pixel rows and accumulates the
+     * structure tensor of every sub-image in it. Every row is read from the image once for the tile
+     * (plus one row above and below it). Pixels outside the content are replaced by the nearest pixel
+     * on its border, and padding pixels add nothing to the tensors.
+     *
+     * @param image      the padded image.
+     * @param content    the bounds of the content of the image.
+     * @param firstRow   the first pixel row of the tile.
+     * @param endRow     the pixel row after the last row of the tile.
+     * @param blockWidth the width of a sub-image.
+     * @param tensors    the structure tensor of every sub-image of the tile, accumulated in place.
+     */
+    private static void accumulateTile(Image image, Rectangle content, int firstRow, int endRow,
+                                       int blockWidth, double[][] tensors) {
+        int contentTop = content.y;
+        int contentBottom = content.y + content.height;
+        int startRow = Math.max(firstRow, contentTop);
+        int stopRow = Math.min(endRow, contentBottom);
+        if (startRow >= stopRow) {
+            return;
+        }
+        int width = image.getWidth();
+        float[] luminance = new float[width];
+
+        // Rolling horizontal pass results for the rows above, at and below the current row.
+        float[][] derivatives = new float[ROLLING_ROWS][width];
+        float[][] smoothed = new float[ROLLING_ROWS][width];
+        horizontalPass(image, content, clamp(startRow - 1, contentTop, contentBottom), luminance,
+                derivatives[0], smoothed[0]);
+        horizontalPass(image, content, startRow, luminance, derivatives[1], smoothed[1]);
+
+        for (int y = startRow; y < stopRow; y++) {
+            float[] derivativeAbove = derivatives[(y - startRow) % ROLLING_ROWS];
+            float[] derivativeCurrent = derivatives[(y - startRow + 1) % ROLLING_ROWS];
+            float[] derivativeBelow = derivatives[(y - startRow + 2) % ROLLING_ROWS];
+            float[] smoothAbove = smoothed[(y - startRow) % ROLLING_ROWS];
+            float[] smoothBelow = smoothed[(y - startRow + 2) % ROLLING_ROWS];
+            horizontalPass(image, content, clamp(y + 1, contentTop, contentBottom), luminance,
+                    derivativeBelow, smoothBelow);
+
+            // The vertical pass, accumulated sub-image by sub-image.
+            for (int column = 0; column < tensors.length; column++) {
+                double xx = 0;
+                double yy = 0;
+                double xy = 0;
+                int startX = Math.max(column * blockWidth, content.x);
+                int stopX = Math.min((column + 1) * blockWidth, content.x + content.width);
+                for (int x = startX; x < stopX; x++) {
+                    float gx = derivativeAbove[x] + SMOOTHING_CENTER_WEIGHT * derivativeCurrent[x]
+                            + derivativeBelow[x];
+                    float gy = smoothBelow[x] - smoothAbove[x];
+                    xx += gx * gx;
+                    yy += gy * gy;
+                    xy += gx * gy;
+                }
+                tensors[column][TENSOR_XX] += xx;
+                tensors[column][TENSOR_YY] += yy;
+                tensors[column][TENSOR_XY] += xy;
+            }
+        }
+    }
+
+    /**
+     * Reads the luminance of the content of one row and runs the horizontal Sobel pass over it: the
+     * central difference and the [1 2 1] smoothing. Only the columns of the content are written.
+     *
+     * @param image      the padded image.
+     * @param content    the bounds of the content of the image.
+     * @param y          the pixel row, inside the content.
+     * @param luminance  a buffer for the luminance of the row, between 0 and 1.
+     * @param derivative the central difference of every pixel of the row, written in place.
+     * @param smooth     the smoothing of every pixel of the row, written in place.
+     */
+    private static void horizontalPass(Image image, Rectangle content, int y, float[] luminance,
+                                       float[] derivative, float[] smooth) {
+        int contentLeft = content.x;
+        int contentRight = content.x + content.width;
+        for (int x = contentLeft; x < contentRight; x++) {
+            luminance[x] = (float) (image.getPixelLuminance(y, x) / MAX_RGB);
+        }
+        for (int x = contentLeft; x < contentRight; x++) {
+            float left = luminance[x > contentLeft ? x - 1 : x];
+            float right = luminance[x < contentRight - 1 ? x + 1 : x];
+            derivative[x] = right - left;
+            smooth[x] = left + SMOOTHING_CENTER_WEIGHT * luminance[x] + right;
+        }
+    }
+
+    /**
+     * Matches the structure tensor of a sub-image to a directional character.
+     *
+     * @param tensor     the sums of gx*gx, gy*gy and gx*gy over the sub-image.
+     * @param pixelCount the number of pixels of the sub-image.
+     * @return the directional character, or {@link #NO_EDGE_CHAR} if there is no dominant edge.
+     */
+    private static char matchTensor(double[] tensor, int pixelCount) {
+        double xx = tensor[TENSOR_XX];
+        double yy = tensor[TENSOR_YY];
+        double xy = tensor[TENSOR_XY];
+        double energy = xx + yy;
+        if (pixelCount == 0 || energy / Math.sqrt(pixelCount) < MIN_EDGE_ENERGY_PER_LENGTH) {
+            return NO_EDGE_CHAR;
+        }
+        double coherence = Math.sqrt((xx - yy) * (xx - yy) + DOUBLE * DOUBLE * xy * xy) / energy;
+        if (coherence < MIN_EDGE_COHERENCE) {
+            return NO_EDGE_CHAR;
+        }
+
+        // The dominant gradient orientation, the edge runs perpendicular to it (y grows downwards).
+        double gradientOrientation = HALF * Math.atan2(DOUBLE * xy, xx - yy);
+        double edgeOrientation = gradientOrientation + RIGHT_ANGLE;
+        int step = (int) Math.round(edgeOrientation / ORIENTATION_STEP);
+        return EDGE_CHARS[Math.floorMod(step, EDGE_CHARS.length)];
+    }
+
+    /**
+     * Clamps a coordinate to be inside [start, end).
+     *
+     * @param value the coordinate.
+     * @param start the first coordinate of the range.
+     * @param end   the coordinate after the last one of the range.
+     * @return the nearest coordinate inside the range.
+     */
+    private static int clamp(int value, int start, int end) {
+        return Math.max(start, Math.min(end - 1, value));
+    }
+}
@@ -0,0 +1,115 @@
+package image_char_matching;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The GlyphTableBenchmark class measures the startup cost of building the default charset of the
+ * shell, with the glyph table of {@link CharConverter} and with AWT rasterization. Every run is a new
+ * JVM, since the AWT font system is only started once per process. For both modes it prints the
+ * median time of the conversion inside the child process and of the whole child process.
+ */
+public class GlyphTableBenchmark {
+
+    private static final char[] DEFAULT_CHARSET = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
+    private static final String CHILD_FLAG = "--child";
+    private static final String MODE_TABLE = "table";
+    private static final String MODE_RASTERIZE = "rasterize";
+    private static final String[] MODES = {MODE_TABLE, MODE_RASTERIZE};
+    private static final String JAVA_HOME_PROPERTY = "java.home";
+    private static final String CLASS_PATH_PROPERTY = "java.class.path";
+    private static final String JAVA_BIN_DIRECTORY = "bin";
+    private static final String JAVA_EXECUTABLE = "java";
+    private static final String CLASS_PATH_OPTION = "-cp";
+    private static final String HEADLESS_OPTION = "-Djava.awt.headless=true";
+    private static final String MSG_RESULT_FORMAT
+            = "%-10s conversion %8.2f ms, process %8.2f ms (median of %d)%n";
+    private static final String MSG_CHILD_FAILED = "Benchmark child process failed: ";
+    private static final String MSG_NO_GLYPH_TABLE = "No glyph table of the default font to benchmark.";
+    private static final int DEFAULT_RUNS = 5;
+    private static final int RUNS_ARG_INDEX = 0;
+    private static final int MODE_ARG_INDEX = 1;
+    private static final double NANOS_IN_MILLI = 1e6;
+
+    private GlyphTableBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark, or one measurement when started as a child process.
+     *
+     * @param args the number of runs of every mode, or "--child" and the mode of one measurement.
+     * @throws IOException          if a child process cannot be started or fails.
+     * @throws InterruptedException if interrupted while waiting for a child process.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > MODE_ARG_INDEX && args[RUNS_ARG_INDEX].equals(CHILD_FLAG)) {
+            System.out.println(measureConversion(args[MODE_ARG_INDEX]));
+            return;
+        }
+        int runs = args.length > RUNS_ARG_INDEX ? Integer.parseInt(args[RUNS_ARG_INDEX]) : DEFAULT_RUNS;
+        String javaExecutable = Path.of(System.getProperty(JAVA_HOME_PROPERTY), JAVA_BIN_DIRECTORY,
+                JAVA_EXECUTABLE).toString();
+        for (String mode : MODES) {
+            long[] conversionNanos = new long[runs];
+            long[] processNanos = new long[runs];
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                Process process = new ProcessBuilder(javaExecutable, HEADLESS_OPTION, CLASS_PATH_OPTION,
+                        System.getProperty(CLASS_PATH_PROPERTY), GlyphTableBenchmark.class.getName(),
+                        CHILD_FLAG, mode).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(process.getInputStream()))) {
+                    String line = reader.readLine();
+                    if (process.waitFor() != 0 || line == null) {
+                        throw new IOException(MSG_CHILD_FAILED + mode);
+                    }
+                    conversionNanos[run] = Long.parseLong(line.trim());
+                }
+                processNanos[run] = System.nanoTime() - start;
+            }
+            System.out.printf(MSG_RESULT_FORMAT, mode, median(conversionNanos) / NANOS_IN_MILLI,
+                    median(processNanos) / NANOS_IN_MILLI, runs);
+        }
+    }
+
+    /**
+     * Builds the default charset of the shell once.
+     *
+     * @param mode whether to read the glyph table or to rasterize every character.
+     * @return the time the conversion took, in nanoseconds.
+     * @throws IllegalStateException if the table is measured but there is no valid glyph table.
+     */
+    private static long measureConversion(String mode) {
+        long start = System.nanoTime();
+        if (mode.equals(MODE_TABLE)) {
+            new SubImgCharMatcher(DEFAULT_CHARSET);
+        } else {
+            for (char c : DEFAULT_CHARSET) {
+                CharConverter.rasterizeToBoolArray(c, CharConverter.FONT_NAME,
+                        CharConverter.DEFAULT_PIXEL_RESOLUTION);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // Checked afterwards, so loading the table is part of the measurement.
+        if (mode.equals(MODE_TABLE) && !CharConverter.hasGlyphTable()) {
+            throw new IllegalStateException(MSG_NO_GLYPH_TABLE);
+        }
+        return elapsed;
+    }
+
+    /**
+     * Calculates the median of measurements.
+     *
+     * @param values the measurements, sorted in place.
+     * @return the median.
+     */
+    private static double median(long[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2.0;
+    }
+}
@@ -0,0 +1,74 @@
+package image_char_matching;
+
+import java.awt.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The GlyphTableGenerator class writes the glyph table resource read by {@link CharConverter}, by
+ * rasterizing every printable ASCII character in the default font and size. The table must be
+ * generated again whenever the rasterization of {@link CharConverter} changes. The font family is
+ * recorded in the header, and the generator refuses to write a table if AWT substitutes another family
+ * for the default font.
+ */
+public class GlyphTableGenerator {
+
+    private static final String DEFAULT_OUTPUT_FILE
+            = "image_char_matching/" + CharConverter.GLYPH_TABLE_RESOURCE;
+    private static final String HEADER_TITLE = " Glyph table of CharConverter: printable ASCII in ";
+    private static final String HEADER_FORMAT
+            = " Line format: char code, then one hex mask per row, leftmost pixel in the highest bit.";
+    private static final String HEADER_REGENERATE
+            = " Regenerate with: java image_char_matching.GlyphTableGenerator";
+    private static final String FIELD_SEPARATOR = " ";
+    private static final String MASK_FORMAT = "%04x";
+    private static final String BEGIN_MSG_WRITTEN = "Wrote ";
+    private static final String BEGIN_MSG_FONT_MISSING = "Did not write the glyph table: ";
+    private static final String MIDDLE_MSG_FONT_MISSING = " is not installed, AWT substitutes ";
+    private static final int OUTPUT_ARG_INDEX = 0;
+
+    private GlyphTableGenerator() {
+    }
+
+    /**
+     * Writes the glyph table.
+     *
+     * @param args the path of the file to write, by default the resource in the source tree.
+     * @throws IOException           if the file cannot be written.
+     * @throws IllegalStateException if AWT substitutes another family for the default font.
+     */
+    public static void main(String[] args) throws IOException {
+        Path output = Path.of(args.length > OUTPUT_ARG_INDEX ? args[OUTPUT_ARG_INDEX] : DEFAULT_OUTPUT_FILE);
+        int size = CharConverter.DEFAULT_PIXEL_RESOLUTION;
+        String family = new Font(CharConverter.FONT_NAME, Font.PLAIN, size).getFamily();
+        if (!family.equals(CharConverter.FONT_NAME)) {
+            throw new IllegalStateException(BEGIN_MSG_FONT_MISSING + CharConverter.FONT_NAME
+                    + MIDDLE_MSG_FONT_MISSING + family);
+        }
+        try (PrintWriter writer = new PrintWriter(
+                Files.newBufferedWriter(output, StandardCharsets.US_ASCII))) {
+            writer.println(CharConverter.GLYPH_TABLE_COMMENT + HEADER_TITLE + CharConverter.FONT_NAME
+                    + FIELD_SEPARATOR + size);
+            writer.println(CharConverter.GLYPH_TABLE_FAMILY_HEADER + family);
+            writer.println(CharConverter.GLYPH_TABLE_COMMENT + HEADER_FORMAT);
+            writer.println(CharConverter.GLYPH_TABLE_COMMENT + HEADER_REGENERATE);
+            for (char c = CharConverter.FIRST_TABLE_CHAR; c <= CharConverter.LAST_TABLE_CHAR; c++) {
+                StringBuilder line = new StringBuilder(Integer.toString(c));
+                for (boolean[] row : CharConverter.rasterizeToBoolArray(c, CharConverter.FONT_NAME, size)) {
+                    int mask = 0;
+                    for (int x = 0; x < size; x++) {
+                        if (row[x]) {
+                            mask |= 1 << (size - 1 - x);
+                        }
+                    }
+                    line.append(FIELD_SEPARATOR).append(String.format(MASK_FORMAT, mask));
+                }
+                writer.println(line);
+            }
+        }
+        System.out.println(BEGIN_MSG_WRITTEN + output);
+    }
+}
@@ -8,6 +8,10 @@ import java.util.Map;
  * where each character is associated with a brightness value. The class provides methods to add, remove,
  * and normalize characters based on their brightness. It also allows for selecting the closest matching
  * character based on a given brightness value.
+ * <p>
+ * The state of the matcher is kept in an immutable {@link CharsetSnapshot} that is replaced as a whole
+ * on every change, so renders running in other threads never see a half-normalized charset.
+ * </p>
  */
 public class SubImgCharMatcher {
 
@@ -33,16 +37,8 @@ public class SubImgCharMatcher {
     public static final String ROUND_TYPE_2 = "down";
 
 
-    // Constants for brightness rounding methods
-    private static final String STRING_TO_SPLIT = " ";
-    private static final char SPACE_CHAR_VALUE = ' ';
-    private static final double DEFAULT_VALUE_CHARSET = 0.0;
-    private static final int SIZE_MIN_MAX_ARRAY = 2;
-
-    // Maps to store the character set and normalized brightness values
-    private final Map<Character, Double> charset;
-    private final Map<Character, Double> charsetNormal;
-    private String roundBrightness;
+    // The published state, replaced as a whole on every change
+    private volatile CharsetSnapshot snapshot;
 
     /**
      * Constructor for SubImgCharMatcher, initializing the charset with characters
@@ -51,14 +47,21 @@ public class SubImgCharMatcher {
      * @param charset an array of characters to initialize the character set.
      */
     public SubImgCharMatcher(char[] charset) {
-        roundBrightness = ROUND_TYPE_DEFAULT;
-        this.charset = new HashMap<>();
-        this.charsetNormal = new HashMap<>();
+        Map<Character, Double> initialCharset = new HashMap<>();
         for (char c : charset) {
-            this.charset.put(c, calculateBrightnessByChar(c));
-            this.charsetNormal.put(c, DEFAULT_VALUE_CHARSET);
+            initialCharset.put(c, calculateBrightnessByChar(c));
         }
-        this.normalCharBrightness();
+        this.snapshot = new CharsetSnapshot(initialCharset, ROUND_TYPE_DEFAULT);
+    }
+
+    /**
+     * Returns the current immutable state of the matcher. A render that reads all its characters
+     * from one snapshot is not affected by changes made to the matcher while it runs.
+     *
+     * @return the current snapshot of the charset and rounding method.
+     */
+    public CharsetSnapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
@@ -82,57 +85,35 @@ public class SubImgCharMatcher {
     }
 
     /**
-     * Finds the minimum and maximum brightness values in the charset.
-     *
-     * @return an array where index 0 is the minimum brightness and index 1 is the maximum brightness.
+     * Normalizes the brightness of characters in the charset to be between 0 and 1,
+     * publishing a new snapshot.
      */
-    private double[] findMaxAndMin() {
-        double[] result = new double[SIZE_MIN_MAX_ARRAY];
-        double min = Double.MAX_VALUE;
-        double max = Double.MIN_VALUE;
-        for (double value : charset.values()) {
-            if (value < min) { min = value; }
-            if (value > max) { max = value; }
-        }
-        result[0] = min;
-        result[1] = max;
-        return result;
-    }
-
-    /**
-     * Normalizes the brightness of characters in the charset to be between 0 and 1.
-     */
-    public void normalCharBrightness() {
-        double minCharBrightness = findMaxAndMin()[0];
-        double maxCharBrightness = findMaxAndMin()[1];
-        for (Map.Entry<Character, Double> entry : charset.entrySet()) {
-            char key = entry.getKey();
-            double value = entry.getValue();
-            double newCharBrightness = (value - minCharBrightness) / (maxCharBrightness - minCharBrightness);
-            charsetNormal.put(key, newCharBrightness);
-        }
+    public synchronized void normalCharBrightness() {
+        this.snapshot = new CharsetSnapshot(snapshot.getCharset(), snapshot.getRoundBrightness());
     }
 
     /**
      * Adds a new character to the charset and recalculates the normalized brightness values.
+     * The current snapshot is copied, changed and published as a new snapshot.
      *
      * @param c the character to be added.
      */
-    public void addChar(char c) {
-        this.charset.put(c, calculateBrightnessByChar(c));
-        this.charsetNormal.put(c, calculateBrightnessByChar(c));
-        this.normalCharBrightness();
+    public synchronized void addChar(char c) {
+        Map<Character, Double> charset = new HashMap<>(snapshot.getCharset());
+        charset.put(c, calculateBrightnessByChar(c));
+        this.snapshot = new CharsetSnapshot(charset, snapshot.getRoundBrightness());
     }
 
     /**
      * Removes a character from the charset and recalculates the normalized brightness values.
+     * The current snapshot is copied, changed and published as a new snapshot.
      *
      * @param c the character to be removed.
      */
-    public void removeChar(char c) {
-        this.charset.remove(c);
-        this.charsetNormal.remove(c);
-        this.normalCharBrightness();
+    public synchronized void removeChar(char c) {
+        Map<Character, Double> charset = new HashMap<>(snapshot.getCharset());
+        charset.remove(c);
+        this.snapshot = new CharsetSnapshot(charset, snapshot.getRoundBrightness());
     }
 
     /**
@@ -143,65 +124,34 @@ public class SubImgCharMatcher {
      * @return the character closest to the given brightness value.
      */
     public char getCharByImageBrightness(double brightness) {
-        if (ROUND_TYPE_DEFAULT.equals(roundBrightness)) {
-            return findClosest(brightness, ROUND_TYPE_DEFAULT);
-        } else if (ROUND_TYPE_1.equals(roundBrightness)) {
-            return findClosest(brightness, ROUND_TYPE_1);
-        } else if (ROUND_TYPE_2.equals(roundBrightness)) {
-            return findClosest(brightness, ROUND_TYPE_2);
-        }
-        return SPACE_CHAR_VALUE;
+        return snapshot.getCharByImageBrightness(brightness);
     }
 
     /**
-     * Sets the rounding method for brightness value comparison.
+     * Returns the normalized brightness of a character in the charset, the same value that
+     * {@link #getCharByImageBrightness(double)} compares against.
      *
-     * @param newType the new rounding method (default, up, down).
+     * @param c the character whose normalized brightness is requested.
+     * @return the normalized brightness of the character, or {@link Double#NaN} if it is not in the charset.
      */
-    public void setRoundBrightness(String newType) {
-        this.roundBrightness = newType;
+    public double getNormalBrightnessByChar(char c) {
+        return snapshot.getNormalBrightnessByChar(c);
     }
 
     /**
-     * Finds the character whose normalized brightness is closest to the given brightness value
-     * based on the selected mode (absolute, up, or down rounding).
+     * Sets the rounding method for brightness value comparison, publishing a new snapshot.
      *
-     * @param brightness the brightness value to compare.
-     * @param mode the rounding mode (default, up, down).
-     * @return the character closest to the brightness value.
+     * @param newType the new rounding method (default, up, down).
      */
-    private char findClosest(double brightness, String mode) {
-        char closestKey = SPACE_CHAR_VALUE;
-        double comparisonValue = mode.equals(ROUND_TYPE_DEFAULT)
-                ? Double.MAX_VALUE : (mode.equals(ROUND_TYPE_1) ? Double.MAX_VALUE : Double.MIN_VALUE);
-        for (Map.Entry<Character, Double> entry : charsetNormal.entrySet()) {
-            double value = entry.getValue();
-            if (mode.equals(ROUND_TYPE_DEFAULT)) {
-                double difference = Math.abs(value - brightness);
-                if (difference < comparisonValue || (difference == comparisonValue &&
-                        entry.getKey() < closestKey)) {
-                    closestKey = entry.getKey();
-                    comparisonValue = difference;
-                }
-            } else if (mode.equals(ROUND_TYPE_1) && value >= brightness && value < comparisonValue) {
-                closestKey = entry.getKey();
-                comparisonValue = value;
-            } else if (mode.equals(ROUND_TYPE_2) && value <= brightness && value > comparisonValue) {
-                closestKey = entry.getKey();
-                comparisonValue = value;
-            }
-        }
-        return closestKey;
+    public synchronized void setRoundBrightness(String newType) {
+        this.snapshot = snapshot.withRoundBrightness(newType);
     }
 
     /**
      * Prints the characters in the charset, separated by spaces.
      */
     public void printHashMap() {
-        for (Map.Entry<Character, Double> entry : charset.entrySet()) {
-            System.out.print(entry.getKey() + STRING_TO_SPLIT);
-        }
-        System.out.println();
+        System.out.println(snapshot);
     }
 
     /**
@@ -210,6 +160,6 @@ public class SubImgCharMatcher {
      * @return the size of the charset.
      */
     public int getNumberOfSet() {
-        return charset.size();
+        return snapshot.getNumberOfSet();
     }
 }
@@ -0,0 +1,152 @@
+package tile_sharding;
+
+import image.Image;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The ShardCheck class checks a {@link ShardCoordinator} end to end with real worker processes on a
+ * fixture image: the sharded grid must equal the grid calculated in this process, a render cancelled
+ * after its first tile must throw and leave no worker process alive, the workers must be started
+ * again for the next render, and closing the coordinator must leave no worker process behind.
+ * It exits with an exception on the first failed check.
+ */
+public class ShardCheck {
+
+    private static final int DEFAULT_WORKERS = 3;
+    private static final int WORKERS_ARG_INDEX = 0;
+    private static final int FIXTURE_WIDTH = 1500;
+    private static final int FIXTURE_HEIGHT = 1000;
+    private static final int FIXTURE_SEED = 42;
+    private static final int FIXTURE_STRIPE = 37;
+    private static final int MAX_RGB = 256;
+    private static final int RESOLUTION = 128;
+    private static final int EXIT_WAIT_MILLIS = 5000;
+    private static final String MSG_GRID_MISMATCH = "Sharded grid differs from the local grid: ";
+    private static final String MSG_NOT_CANCELLED = "Cancelled render returned a grid.";
+    private static final String MSG_NO_WORKERS = "No worker process was started.";
+    private static final String MSG_ORPHANED_WORKERS = "Worker processes left alive: ";
+    private static final String MSG_PASSED = "Passed: ";
+    private static final String CHECK_GRID = "sharded grid equals the local grid";
+    private static final String CHECK_CANCEL = "cancel mid-render kills the workers";
+    private static final String CHECK_RESTART = "workers restart after a cancel";
+    private static final String CHECK_CLOSE = "close leaves no worker process";
+
+    private ShardCheck() {
+    }
+
+    /**
+     * Runs every check.
+     *
+     * @param args the number of worker processes, 3 by default.
+     * @throws IllegalStateException if a check fails.
+     */
+    public static void main(String[] args) {
+        int workerCount = args.length > WORKERS_ARG_INDEX
+                ? Integer.parseInt(args[WORKERS_ARG_INDEX]) : DEFAULT_WORKERS;
+        Image paddedImage = createFixture().createPaddingImageToNextPowerOfTwo();
+        double[][] expected = paddedImage.calculateBrightnessGrid(RESOLUTION, RESOLUTION,
+                paddedImage.getWidth() / RESOLUTION, paddedImage.getHeight() / RESOLUTION);
+
+        try (ShardCoordinator coordinator = new ShardCoordinator(workerCount)) {
+            checkGrid(coordinator.calculateBrightnessGrid(paddedImage, RESOLUTION, () -> false,
+                    blocks -> { }), expected);
+            if (liveWorkers().isEmpty()) {
+                throw new IllegalStateException(MSG_NO_WORKERS);
+            }
+            System.out.println(MSG_PASSED + CHECK_GRID);
+
+            // Cancel as soon as the first tile is done, while the others are still being calculated.
+            AtomicBoolean cancelled = new AtomicBoolean();
+            try {
+                coordinator.calculateBrightnessGrid(paddedImage, RESOLUTION, cancelled::get,
+                        blocks -> cancelled.set(true));
+                throw new IllegalStateException(MSG_NOT_CANCELLED);
+            } catch (CancellationException e) {
+                checkNoLiveWorkers();
+            }
+            System.out.println(MSG_PASSED + CHECK_CANCEL);
+
+            AtomicInteger doneBlocks = new AtomicInteger();
+            checkGrid(coordinator.calculateBrightnessGrid(paddedImage, RESOLUTION, () -> false,
+                    doneBlocks::addAndGet), expected);
+            if (liveWorkers().isEmpty() || doneBlocks.get() != RESOLUTION * RESOLUTION) {
+                throw new IllegalStateException(MSG_NO_WORKERS);
+            }
+            System.out.println(MSG_PASSED + CHECK_RESTART);
+        }
+        checkNoLiveWorkers();
+        System.out.println(MSG_PASSED + CHECK_CLOSE);
+    }
+
+    /**
+     * Creates a deterministic fixture image of random pixels crossed by stripes, whose dimensions are
+     * not powers of two, so it is padded.
+     *
+     * @return the fixture image.
+     */
+    private static Image createFixture() {
+        Random random = new Random(FIXTURE_SEED);
+        Color[][] pixels = new Color[FIXTURE_HEIGHT][FIXTURE_WIDTH];
+        for (int row = 0; row < FIXTURE_HEIGHT; row++) {
+            for (int column = 0; column < FIXTURE_WIDTH; column++) {
+                pixels[row][column] = (row + column) / FIXTURE_STRIPE % 2 == 0 ? Color.BLACK
+                        : new Color(random.nextInt(MAX_RGB), random.nextInt(MAX_RGB), random.nextInt(MAX_RGB));
+            }
+        }
+        return new Image(pixels, FIXTURE_WIDTH, FIXTURE_HEIGHT);
+    }
+
+    /**
+     * Checks that a sharded grid is exactly the local grid.
+     *
+     * @param actual   the grid calculated by the workers.
+     * @param expected the grid calculated in this process.
+     * @throws IllegalStateException if a block differs.
+     */
+    private static void checkGrid(double[][] actual, double[][] expected) {
+        for (int row = 0; row < expected.length; row++) {
+            if (!Arrays.equals(actual[row], expected[row])) {
+                throw new IllegalStateException(MSG_GRID_MISMATCH + row);
+            }
+        }
+    }
+
+    /**
+     * Waits for the worker processes to exit, and checks that none is left alive.
+     *
+     * @throws IllegalStateException if a worker process is still alive after the wait.
+     */
+    private static void checkNoLiveWorkers() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(EXIT_WAIT_MILLIS);
+        for (ProcessHandle worker : liveWorkers()) {
+            long remaining = deadline - System.nanoTime();
+            try {
+                worker.onExit().get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                // Reported below, with every worker still alive.
+            }
+        }
+        List<ProcessHandle> orphans = liveWorkers();
+        if (!orphans.isEmpty()) {
+            throw new IllegalStateException(MSG_ORPHANED_WORKERS + orphans.stream()
+                    .map(ProcessHandle::pid).toList());
+        }
+    }
+
+    /**
+     * Gets the child processes of this process that are still alive, which are the worker processes.
+     *
+     * @return the live worker processes.
+     */
+    private static List<ProcessHandle> liveWorkers() {
+        return ProcessHandle.current().children().filter(ProcessHandle::isAlive).toList();
+    }
+}
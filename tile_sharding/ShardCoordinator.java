@@ -0,0 +1,434 @@
+package tile_sharding;
+
+import image.Image;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * The ShardCoordinator class calculates the brightness grid of an image with a pool of
+ * {@link ShardWorker} processes on the same machine, so that the per-pixel work is spread over several
+ * JVMs, each holding only the tile it is working on.
+ * <p>
+ * The padded image is split into tiles of whole rows of blocks. The tiles are handed out from a shared
+ * queue to one connection thread per worker, sent over a loopback socket as packed RGB pixels, and the
+ * brightness of their blocks is written back into its place in the grid, so the result does not depend
+ * on which worker computed which tile. If a worker dies or stops answering, its tile is put back in the
+ * queue for another worker and the worker is replaced on the next call. A tile that failed
+ * {@link #MAX_TILE_ATTEMPTS} times, or that is left over when no worker is alive, is calculated in this
+ * process, so a call always returns the full grid.
+ * </p>
+ * <p>
+ * The pixels of a tile are read from the image as they are sent, so a padded view of the image is
+ * never copied. A call can be cancelled: no tile is started after that, and the workers are killed so
+ * that a tile in the middle of its calculation stops as well.
+ * </p>
+ */
+public class ShardCoordinator implements AutoCloseable {
+
+    private static final int TILES_PER_WORKER = 4;
+    private static final int MAX_TILE_ATTEMPTS = 2;
+    private static final int ACCEPT_TIMEOUT_MILLIS = 10000;
+    private static final int READ_TIMEOUT_MILLIS = 60000;
+    private static final int EXIT_TIMEOUT_MILLIS = 1000;
+    private static final int CANCEL_POLL_MILLIS = 50;
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+    private static final String JAVA_HOME_PROPERTY = "java.home";
+    private static final String CLASS_PATH_PROPERTY = "java.class.path";
+    private static final String JAVA_BIN_DIRECTORY = "bin";
+    private static final String JAVA_EXECUTABLE = "java";
+    private static final String CLASS_PATH_OPTION = "-cp";
+    private static final String MSG_WRONG_TILE = "Worker answered with the wrong tile: ";
+    private static final String MSG_CANCELLED = "Brightness calculation cancelled.";
+
+    private final int workerCount;
+    private final List<WorkerConnection> workers;
+    private final ExecutorService connectionPool;
+    private ServerSocket serverSocket;
+    private boolean closed;
+
+    /**
+     * Constructor for creating a coordinator. The worker processes are started on the first call.
+     *
+     * @param workerCount the number of worker processes.
+     */
+    public ShardCoordinator(int workerCount) {
+        this.workerCount = workerCount;
+        this.workers = new ArrayList<>();
+        this.connectionPool = Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Gets the number of worker processes the coordinator keeps.
+     *
+     * @return the number of workers.
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Calculates the brightness of every block of the image with the worker processes. The result is
+     * the same as {@link Image#calculateBlockBrightness(int, int, int)} for every block.
+     *
+     * @param paddedImage  an image whose width and height are powers of two.
+     * @param resolution   the number of divisions along the width and height.
+     * @param isCancelled  checked between tiles, and while waiting for the workers.
+     * @param onBlocksDone called with the number of blocks of every tile once it is calculated.
+     * @return a 2D array where entry [row][column] is the brightness of the block, between 0 and 1.
+     * @throws CancellationException if the calculation was cancelled. The workers are then killed,
+     *                               and started again on the next call.
+     */
+    public synchronized double[][] calculateBrightnessGrid(Image paddedImage, int resolution,
+                                                           BooleanSupplier isCancelled,
+                                                           IntConsumer onBlocksDone) {
+        double[][] brightnessGrid = new double[resolution][];
+        startMissingWorkers();
+
+        // Split the grid into tiles of whole rows of blocks, a few per worker to balance the load.
+        BlockingQueue<Tile> pendingTiles = new LinkedBlockingQueue<>();
+        int tileCount = Math.max(1, workers.size() * TILES_PER_WORKER);
+        int rowsPerTile = Math.max(1, (resolution + tileCount - 1) / tileCount);
+        for (int firstRow = 0; firstRow < resolution; firstRow += rowsPerTile) {
+            pendingTiles.add(new Tile(firstRow, Math.min(rowsPerTile, resolution - firstRow)));
+        }
+
+        Queue<Tile> localTiles = new ConcurrentLinkedQueue<>();
+        List<Future<?>> connections = new ArrayList<>();
+        for (WorkerConnection worker : workers) {
+            connections.add(connectionPool.submit(() -> serveWorker(worker, paddedImage, resolution,
+                    pendingTiles, localTiles, brightnessGrid, isCancelled, onBlocksDone)));
+        }
+        awaitConnections(connections, isCancelled);
+
+        // Tiles no worker could take are calculated here.
+        pendingTiles.drainTo(localTiles);
+        for (Tile tile : localTiles) {
+            for (int row = tile.firstRow; row < tile.firstRow + tile.rows; row++) {
+                if (isCancelled.getAsBoolean()) {
+                    throw new CancellationException(MSG_CANCELLED);
+                }
+                brightnessGrid[row] = new double[resolution];
+                for (int column = 0; column < resolution; column++) {
+                    brightnessGrid[row][column] = paddedImage.calculateBlockBrightness(resolution, row, column);
+                }
+                onBlocksDone.accept(resolution);
+            }
+        }
+        return brightnessGrid;
+    }
+
+    /**
+     * Stops the worker processes. Later calls calculate the whole grid in this process.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (WorkerConnection worker : workers) {
+            worker.stop();
+        }
+        workers.clear();
+        connectionPool.shutdownNow();
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                // The socket is abandoned either way.
+            }
+        }
+    }
+
+    /**
+     * Waits until every connection thread has ended, and forgets the workers that died. If the
+     * calculation is cancelled meanwhile, all the workers are killed, which ends the connections that
+     * are waiting for a tile.
+     *
+     * @param connections the connection threads of the workers.
+     * @param isCancelled checked while waiting.
+     * @throws CancellationException if the calculation was cancelled.
+     */
+    private void awaitConnections(List<Future<?>> connections, BooleanSupplier isCancelled) {
+        Throwable connectionFailure = null;
+        boolean cancelled = false;
+        for (Future<?> connection : connections) {
+            while (true) {
+                try {
+                    connection.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    if (!cancelled && isCancelled.getAsBoolean()) {
+                        cancelled = true;
+                        workers.forEach(WorkerConnection::kill);
+                    }
+                } catch (ExecutionException e) {
+                    // Only unchecked exceptions end a connection thread, thrown once all the others ended.
+                    connectionFailure = e.getCause();
+                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        if (cancelled || isCancelled.getAsBoolean()) {
+            workers.forEach(WorkerConnection::kill);
+            workers.clear();
+            throw new CancellationException(MSG_CANCELLED);
+        }
+        workers.removeIf(WorkerConnection::isDead);
+        if (connectionFailure instanceof Error error) {
+            throw error;
+        }
+        if (connectionFailure != null) {
+            throw (RuntimeException) connectionFailure;
+        }
+    }
+
+    /**
+     * Sends tiles from the queue to one worker until the queue is empty or the calculation is cancelled.
+     * The pixels of a tile are read from the image row by row as they are sent. If the worker fails, its
+     * tile is put back in the queue, or kept for this process once it failed too many times, and the
+     * worker is stopped.
+     *
+     * @param worker         the worker.
+     * @param paddedImage    the padded image.
+     * @param resolution     the number of divisions along the width and height.
+     * @param pendingTiles   the tiles no worker has taken yet.
+     * @param localTiles     the tiles to calculate in this process.
+     * @param brightnessGrid the grid the rows of every tile are written to.
+     * @param isCancelled    checked before every tile.
+     * @param onBlocksDone   called with the number of blocks of every tile once it is calculated.
+     */
+    private static void serveWorker(WorkerConnection worker, Image paddedImage, int resolution,
+                                    BlockingQueue<Tile> pendingTiles, Queue<Tile> localTiles,
+                                    double[][] brightnessGrid, BooleanSupplier isCancelled,
+                                    IntConsumer onBlocksDone) {
+        int blockWidth = paddedImage.getWidth() / resolution;
+        int blockHeight = paddedImage.getHeight() / resolution;
+        int[] pixelRow = new int[resolution * blockWidth];
+        ByteBuffer rowBuffer = ByteBuffer.allocate(pixelRow.length * Integer.BYTES);
+        while (!isCancelled.getAsBoolean()) {
+            Tile tile = pendingTiles.poll();
+            if (tile == null) {
+                return;
+            }
+            try {
+                DataOutputStream output = worker.output;
+                output.writeInt(tile.id());
+                output.writeInt(tile.rows);
+                output.writeInt(resolution);
+                output.writeInt(blockWidth);
+                output.writeInt(blockHeight);
+                for (int y = tile.firstRow * blockHeight; y < (tile.firstRow + tile.rows) * blockHeight; y++) {
+                    for (int x = 0; x < pixelRow.length; x++) {
+                        pixelRow[x] = paddedImage.getPixelRGB(y, x);
+                    }
+                    ShardProtocol.writePixelRow(output, pixelRow, rowBuffer);
+                }
+                output.flush();
+
+                DataInputStream input = worker.input;
+                int tileId = input.readInt();
+                if (tileId != tile.id()) {
+                    throw new IOException(MSG_WRONG_TILE + tileId);
+                }
+                double[][] tileRows = new double[tile.rows][resolution];
+                for (double[] row : tileRows) {
+                    for (int column = 0; column < resolution; column++) {
+                        row[column] = input.readDouble();
+                    }
+                }
+                System.arraycopy(tileRows, 0, brightnessGrid, tile.firstRow, tile.rows);
+                onBlocksDone.accept(tile.rows * resolution);
+            } catch (IOException e) {
+                worker.kill();
+                tile.attempts++;
+                (tile.attempts < MAX_TILE_ATTEMPTS ? pendingTiles : localTiles).add(tile);
+                return;
+            } catch (RuntimeException | Error e) {
+                // The image could not be read, the worker is left in the middle of a tile.
+                worker.kill();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Starts worker processes until there are as many as requested, and waits for them to connect.
+     * Workers that do not connect in time are given up on, and the grid is calculated with fewer.
+     */
+    private void startMissingWorkers() {
+        if (closed || workers.size() >= workerCount) {
+            return;
+        }
+        Map<Long, Process> startedProcesses = new HashMap<>();
+        try {
+            if (serverSocket == null) {
+                serverSocket = new ServerSocket(0, workerCount, InetAddress.getLoopbackAddress());
+                serverSocket.setSoTimeout(ACCEPT_TIMEOUT_MILLIS);
+            }
+            String javaExecutable = Path.of(System.getProperty(JAVA_HOME_PROPERTY), JAVA_BIN_DIRECTORY,
+                    JAVA_EXECUTABLE).toString();
+            for (int i = workers.size(); i < workerCount; i++) {
+                Process process = new ProcessBuilder(javaExecutable, CLASS_PATH_OPTION,
+                        System.getProperty(CLASS_PATH_PROPERTY), ShardWorker.class.getName(),
+                        Integer.toString(serverSocket.getLocalPort()))
+                        .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                startedProcesses.put(process.pid(), process);
+            }
+
+            // Every worker introduces itself with its process id, so a dead connection kills its process.
+            while (!startedProcesses.isEmpty()) {
+                Socket socket = serverSocket.accept();
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                DataInputStream input = new DataInputStream(
+                        new BufferedInputStream(socket.getInputStream(), STREAM_BUFFER_SIZE));
+                Process process = startedProcesses.remove(input.readLong());
+                if (process == null) {
+                    socket.close();
+                    continue;
+                }
+                workers.add(new WorkerConnection(process, socket, input, new DataOutputStream(
+                        new BufferedOutputStream(socket.getOutputStream(), STREAM_BUFFER_SIZE))));
+            }
+        } catch (IOException e) {
+            // Go on with the workers that connected, without workers the grid is calculated here.
+        } finally {
+            for (Process process : startedProcesses.values()) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * A tile of whole rows of blocks, and the number of times a worker failed on it.
+     */
+    private static class Tile {
+        private final int firstRow;
+        private final int rows;
+        private int attempts;
+
+        /**
+         * Constructor for creating a tile.
+         *
+         * @param firstRow the first row of blocks of the tile.
+         * @param rows     the number of rows of blocks of the tile.
+         */
+        Tile(int firstRow, int rows) {
+            this.firstRow = firstRow;
+            this.rows = rows;
+        }
+
+        /**
+         * Gets the id of the tile sent to the worker, its first row of blocks.
+         *
+         * @return the id of the tile.
+         */
+        int id() {
+            return firstRow;
+        }
+    }
+
+    /**
+     * The process of a worker and its open connection.
+     */
+    private static class WorkerConnection {
+        private final Process process;
+        private final Socket socket;
+        private final DataInputStream input;
+        private final DataOutputStream output;
+        private volatile boolean dead;
+
+        /**
+         * Constructor for creating a worker connection.
+         *
+         * @param process the worker process.
+         * @param socket  the connection to the worker.
+         * @param input   the stream of the answers of the worker.
+         * @param output  the stream of the tiles sent to the worker.
+         */
+        WorkerConnection(Process process, Socket socket, DataInputStream input, DataOutputStream output) {
+            this.process = process;
+            this.socket = socket;
+            this.input = input;
+            this.output = output;
+        }
+
+        /**
+         * Checks whether the worker failed and was killed.
+         *
+         * @return true if the worker is dead.
+         */
+        boolean isDead() {
+            return dead;
+        }
+
+        /**
+         * Kills a worker that failed.
+         */
+        void kill() {
+            dead = true;
+
+            // The process goes first, so it does not report the closed connection as an error.
+            process.destroyForcibly();
+            closeSocket();
+        }
+
+        /**
+         * Asks the worker to exit, and kills it if it does not exit in time.
+         */
+        void stop() {
+            try {
+                output.writeInt(ShardProtocol.END_OF_WORK);
+                output.flush();
+                closeSocket();
+                if (process.waitFor(EXIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (IOException e) {
+                // The worker is killed below.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            kill();
+        }
+
+        /**
+         * Closes the connection to the worker.
+         */
+        private void closeSocket() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // The connection is abandoned either way.
+            }
+        }
+    }
+}
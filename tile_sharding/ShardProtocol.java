@@ -0,0 +1,81 @@
+package tile_sharding;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The ShardProtocol class holds the messages exchanged between a {@link ShardCoordinator} and its
+ * {@link ShardWorker} processes over a local socket.
+ * <p>
+ * A worker first sends its process id as a long. The coordinator then sends a tile as its id, its
+ * number of rows and columns of blocks, the width and height of a block and then its pixels as packed
+ * RGB integers, row by row. The worker answers with the id of the tile followed by the brightness of
+ * every block, row by row. An id of {@link #END_OF_WORK} tells the worker to exit.
+ * </p>
+ */
+final class ShardProtocol {
+
+    static final int END_OF_WORK = -1;
+
+    private static final String MSG_BAD_TILE = "Malformed tile header";
+
+    private ShardProtocol() {
+    }
+
+    /**
+     * Writes one row of pixels as packed RGB integers.
+     *
+     * @param output the output to write to.
+     * @param pixels the packed RGB values of the row.
+     * @param buffer a buffer of at least 4 bytes for every pixel of the row.
+     * @throws IOException if the output cannot be written.
+     */
+    static void writePixelRow(DataOutputStream output, int[] pixels, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        buffer.asIntBuffer().put(pixels);
+        output.write(buffer.array(), 0, pixels.length * Integer.BYTES);
+    }
+
+    /**
+     * Reads the pixels of a tile whose header was already read.
+     *
+     * @param input  the input to read from.
+     * @param width  the width of the tile in pixels.
+     * @param height the height of the tile in pixels.
+     * @return the packed RGB value of every pixel, row by row.
+     * @throws IOException if the input cannot be read or the dimensions are invalid.
+     */
+    static int[] readPixels(DataInputStream input, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE / Integer.BYTES) {
+            throw new IOException(MSG_BAD_TILE);
+        }
+        byte[] row = new byte[width * Integer.BYTES];
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            input.readFully(row);
+            ByteBuffer.wrap(row).asIntBuffer().get(pixels, y * width, width);
+        }
+        return pixels;
+    }
+
+    /**
+     * Writes the brightness of every block of a tile.
+     *
+     * @param output         the output to write to.
+     * @param tileId         the id of the tile.
+     * @param brightnessGrid the brightness of every block of the tile.
+     * @throws IOException if the output cannot be written.
+     */
+    static void writeBrightness(DataOutputStream output, int tileId, double[][] brightnessGrid)
+            throws IOException {
+        output.writeInt(tileId);
+        for (double[] row : brightnessGrid) {
+            for (double brightness : row) {
+                output.writeDouble(brightness);
+            }
+        }
+        output.flush();
+    }
+}
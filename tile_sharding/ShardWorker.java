@@ -0,0 +1,58 @@
+package tile_sharding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * The ShardWorker class is the entry point of a worker process started by a {@link ShardCoordinator}.
+ * It connects back to the coordinator on the loopback interface and sends its process id, then
+ * receives tiles and answers with the brightness of their blocks until it is told to exit or the
+ * connection is closed. A worker only ever holds one tile in memory.
+ */
+public class ShardWorker {
+
+    private static final int PORT_ARG_INDEX = 0;
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+
+    private ShardWorker() {
+    }
+
+    /**
+     * Connects to the coordinator and processes tiles.
+     *
+     * @param args the port the coordinator listens on.
+     * @throws IOException if the connection fails.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[PORT_ARG_INDEX]);
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             DataInputStream input = new DataInputStream(
+                     new BufferedInputStream(socket.getInputStream(), STREAM_BUFFER_SIZE));
+             DataOutputStream output = new DataOutputStream(
+                     new BufferedOutputStream(socket.getOutputStream(), STREAM_BUFFER_SIZE))) {
+            socket.setTcpNoDelay(true);
+            output.writeLong(ProcessHandle.current().pid());
+            output.flush();
+            while (true) {
+                int tileId = input.readInt();
+                if (tileId == ShardProtocol.END_OF_WORK) {
+                    return;
+                }
+                int rows = input.readInt();
+                int columns = input.readInt();
+                int blockWidth = input.readInt();
+                int blockHeight = input.readInt();
+                int width = columns * blockWidth;
+                int height = rows * blockHeight;
+                TileImage tile = new TileImage(ShardProtocol.readPixels(input, width, height), width, height);
+                ShardProtocol.writeBrightness(output, tileId,
+                        tile.calculateBrightnessGrid(rows, columns, blockWidth, blockHeight));
+            }
+        }
+    }
+}
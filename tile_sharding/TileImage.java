@@ -0,0 +1,55 @@
+package tile_sharding;
+
+import image.Image;
+import java.awt.*;
+
+/**
+ * The TileImage class is a tile of a larger image received by a {@link ShardWorker}, whose pixels are
+ * kept as packed RGB values in a flat array.
+ */
+class TileImage extends Image {
+
+    private static final int BYTE_MASK = 0xFF;
+    private static final int RED_SHIFT = 16;
+    private static final int GREEN_SHIFT = 8;
+
+    private final int[] pixels;
+
+    /**
+     * Constructor for creating a tile from its packed RGB pixels.
+     *
+     * @param pixels the packed RGB value of every pixel, row by row.
+     * @param width  the width of the tile.
+     * @param height the height of the tile.
+     */
+    TileImage(int[] pixels, int width, int height) {
+        super(width, height);
+        this.pixels = pixels;
+    }
+
+    /**
+     * Gets the color of a pixel at a specific coordinate.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the {@link Color} of the pixel at the specified coordinates.
+     */
+    @Override
+    public Color getPixel(int x, int y) {
+        return new Color(pixels[x * getWidth() + y]);
+    }
+
+    /**
+     * Calculates the luminance of a single pixel directly from its packed RGB value.
+     *
+     * @param x the x-coordinate of the pixel.
+     * @param y the y-coordinate of the pixel.
+     * @return the luminance of the pixel, between 0 and 255.
+     */
+    @Override
+    public double getPixelLuminance(int x, int y) {
+        int rgb = pixels[x * getWidth() + y];
+        return calculateLuminance((rgb >> RED_SHIFT) & BYTE_MASK, (rgb >> GREEN_SHIFT) & BYTE_MASK,
+                rgb & BYTE_MASK);
+    }
+}